@@ -0,0 +1,315 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.benchmark;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link DanthermSimulator} is a stand-in for the Modbus TCP interface of a Dantherm HCV5 unit. It keeps
+ * all 65536 holding registers in memory and answers reads (function 3), writes (function 16) and combined writes
+ * and reads (function 23) of them, so a written value is returned by the next read. Other functions are answered
+ * with an illegal function exception. Requests are answered in the order they arrive, also when a client sends
+ * several before reading the answers.
+ *
+ * Like the Dobiss simulator it can add a latency before every answer, close idle connections or drop all of them,
+ * and counts the requests and connections it received.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public class DanthermSimulator implements Closeable {
+
+    private static final int HEADER_LENGTH = 7;
+    private static final int MAX_PDU_LENGTH = 253;
+
+    private static final int READ_HOLDING_REGISTERS = 3;
+    private static final int WRITE_MULTIPLE_REGISTERS = 16;
+    private static final int READ_WRITE_MULTIPLE_REGISTERS = 23;
+
+    private static final int ILLEGAL_FUNCTION = 1;
+    private static final int ILLEGAL_DATA_ADDRESS = 2;
+    private static final int ILLEGAL_DATA_VALUE = 3;
+
+    private final Logger logger = LoggerFactory.getLogger(DanthermSimulator.class);
+
+    private final ServerSocket serverSocket;
+
+    private final Thread acceptThread;
+
+    // Holding registers, 16 bits each
+    private final AtomicIntegerArray registers = new AtomicIntegerArray(65536);
+
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+
+    // Delay in ms before every answer
+    private volatile int latency;
+
+    // Time in ms after which an idle connection is closed, as the HCV5 does after a minute; 0 to keep it open
+    private volatile int idleTimeout;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong connections = new AtomicLong();
+
+    /**
+     * Starts a simulator on the loopback interface.
+     *
+     * @param port TCP port to listen on, or 0 for any free port
+     */
+    public DanthermSimulator(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        acceptThread = new Thread(this::accept, "dantherm-simulator-" + getPort());
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public void setLatency(int latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Sets the idle time after which a connection is closed. Applies to connections accepted afterwards.
+     */
+    public void setIdleTimeout(int idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public int getRegister(int address) {
+        return registers.get(address);
+    }
+
+    public void setRegister(int address, int value) {
+        registers.set(address, value & 0xFFFF);
+    }
+
+    /**
+     * Stores a 32 bit value the way the HCV5 does: the high word in the first register, the low word next.
+     */
+    public void setInt(int address, int value) {
+        setRegister(address, value >>> 16);
+        setRegister(address + 1, value);
+    }
+
+    /**
+     * Stores a float the way the HCV5 does: the high word in the first register, the low word next.
+     */
+    public void setFloat(int address, float value) {
+        int bits = Float.floatToIntBits(value);
+        setRegister(address, bits >>> 16);
+        setRegister(address + 1, bits);
+    }
+
+    /**
+     * Returns the number of requests received since the simulator started.
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Returns the number of connections accepted since the simulator started.
+     */
+    public long getConnectionCount() {
+        return connections.get();
+    }
+
+    /**
+     * Closes every client connection, as a unit that is power cycled or loses its network.
+     */
+    public void dropConnections() {
+        for (Socket client : clients) {
+            closeQuietly(client);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        dropConnections();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            Socket client;
+            try {
+                client = serverSocket.accept();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.debug("Dantherm simulator stopped accepting connections: {}", e.getMessage());
+                }
+                return;
+            }
+
+            connections.incrementAndGet();
+            clients.add(client);
+            Thread thread = new Thread(() -> serve(client), "dantherm-simulator-client-" + connections.get());
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(idleTimeout);
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+
+            byte[] header = new byte[HEADER_LENGTH];
+            byte[] pdu = new byte[MAX_PDU_LENGTH];
+            while (true) {
+                in.readFully(header);
+                int length = ((header[4] & 0xFF) << 8 | (header[5] & 0xFF)) - 1;
+                if (length < 1 || length > MAX_PDU_LENGTH) {
+                    logger.debug("Dantherm simulator closes connection after invalid length {}", length);
+                    return;
+                }
+                in.readFully(pdu, 0, length);
+                requests.incrementAndGet();
+
+                answer(out, header, handle(ByteBuffer.wrap(pdu, 0, length)));
+            }
+        } catch (EOFException | SocketException e) {
+            // Client closed the connection, or it was dropped
+        } catch (SocketTimeoutException e) {
+            logger.debug("Dantherm simulator closes idle connection");
+        } catch (IOException e) {
+            logger.debug("Dantherm simulator connection failed: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            clients.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * Handles one request and returns the answer, without its header.
+     */
+    private byte[] handle(ByteBuffer request) {
+        int function = request.get() & 0xFF;
+        if (request.remaining() < 4) {
+            return exception(function, ILLEGAL_DATA_VALUE);
+        }
+        int address = request.getShort() & 0xFFFF;
+        int count = request.getShort() & 0xFFFF;
+        if (address + count > registers.length()) {
+            return exception(function, ILLEGAL_DATA_ADDRESS);
+        }
+
+        switch (function) {
+            case READ_HOLDING_REGISTERS:
+                if (count < 1 || count > 125) {
+                    return exception(function, ILLEGAL_DATA_VALUE);
+                }
+                return read(function, address, count);
+            case WRITE_MULTIPLE_REGISTERS:
+                if (count < 1 || count > 123 || !write(request, address, count)) {
+                    return exception(function, ILLEGAL_DATA_VALUE);
+                }
+                return ByteBuffer.allocate(5).put((byte) function).putShort((short) address).putShort((short) count)
+                        .array();
+            case READ_WRITE_MULTIPLE_REGISTERS: {
+                if (count < 1 || count > 125 || request.remaining() < 4) {
+                    return exception(function, ILLEGAL_DATA_VALUE);
+                }
+                int writeAddress = request.getShort() & 0xFFFF;
+                int writeCount = request.getShort() & 0xFFFF;
+                if (writeAddress + writeCount > registers.length()) {
+                    return exception(function, ILLEGAL_DATA_ADDRESS);
+                }
+                // The write goes first, so the read returns the written values
+                if (writeCount < 1 || writeCount > 121 || !write(request, writeAddress, writeCount)) {
+                    return exception(function, ILLEGAL_DATA_VALUE);
+                }
+                return read(function, address, count);
+            }
+            default:
+                return exception(function, ILLEGAL_FUNCTION);
+        }
+    }
+
+    private byte[] read(int function, int address, int count) {
+        ByteBuffer answer = ByteBuffer.allocate(2 + count * 2);
+        answer.put((byte) function).put((byte) (count * 2));
+        for (int i = 0; i < count; i++) {
+            answer.putShort((short) registers.get(address + i));
+        }
+        return answer.array();
+    }
+
+    /**
+     * Stores the byte count and values of a write request, when the request holds all of them.
+     */
+    private boolean write(ByteBuffer request, int address, int count) {
+        if (request.remaining() < 1 + count * 2 || (request.get() & 0xFF) != count * 2) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            setRegister(address + i, request.getShort());
+        }
+        return true;
+    }
+
+    private static byte[] exception(int function, int code) {
+        return new byte[] { (byte) (function | 0x80), (byte) code };
+    }
+
+    private void answer(OutputStream out, byte[] header, byte[] pdu) throws IOException, InterruptedException {
+        int latency = this.latency;
+        if (latency > 0) {
+            Thread.sleep(latency);
+        }
+
+        // The header of the answer repeats the transaction, protocol and unit of the request
+        byte[] answer = new byte[HEADER_LENGTH + pdu.length];
+        System.arraycopy(header, 0, answer, 0, HEADER_LENGTH);
+        answer[4] = (byte) ((pdu.length + 1) >> 8);
+        answer[5] = (byte) (pdu.length + 1);
+        System.arraycopy(pdu, 0, answer, HEADER_LENGTH, pdu.length);
+        out.write(answer);
+        out.flush();
+    }
+
+    private static void closeQuietly(@Nullable Socket socket) {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing left to do with it
+            }
+        }
+    }
+}
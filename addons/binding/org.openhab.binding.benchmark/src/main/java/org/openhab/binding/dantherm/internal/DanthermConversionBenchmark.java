@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dantherm.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@link DanthermConversionBenchmark} measures turning the registers read from an HCV5 unit into values,
+ * and those values into channel states. The registers hold a fan speed level and a temperature of 19.2 degrees.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DanthermConversionBenchmark {
+
+    // Registers as read, high word first; not final, so the conversions are not folded into constants
+    private int intHigh = 0;
+    private int intLow = 3;
+    private int floatHigh = Float.floatToIntBits(19.2f) >>> 16;
+    private int floatLow = Float.floatToIntBits(19.2f) & 0xFFFF;
+
+    private int intValue = 3;
+    private float floatValue = 19.2f;
+
+    @Benchmark
+    public int convertInt() {
+        return DanthermModbus.convertHCV5IntsToInt(intHigh, intLow);
+    }
+
+    @Benchmark
+    public float convertFloat() {
+        return DanthermModbus.convertHCV5RegistersToFloat(floatHigh, floatLow);
+    }
+
+    @Benchmark
+    public DecimalType intState() {
+        return DanthermStates.decimal(intValue);
+    }
+
+    @Benchmark
+    public DecimalType floatState() {
+        return DanthermStates.decimal(floatValue);
+    }
+}
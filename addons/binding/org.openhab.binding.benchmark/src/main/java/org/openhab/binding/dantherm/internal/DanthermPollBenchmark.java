@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dantherm.internal;
+
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+import org.openhab.binding.benchmark.DanthermSimulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@link DanthermPollBenchmark} measures complete poll cycles and fan speed writes of a {@link DanthermModbus}
+ * against a simulated HCV5 unit on the loopback interface, with the registers read one value at a time or in
+ * blocks, sent one at a time or pipelined. Every poll reads the values whose refresh class is due, so the results
+ * average over the polls of the slower classes. All polls go over the one connection of the session. The polling
+ * job of the {@link DanthermModbus} runs once an hour, so nearly only the measured polls reach the simulator.
+ * Latencies are sampled, so the results include their percentiles.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DanthermPollBenchmark {
+
+    // Unused registers that may be read between two values; 0 only joins adjacent values
+    @Param({ "0", "32" })
+    public int maxReadGap;
+
+    // Block reads sent before their answers arrived; 1 waits for every answer before the next read
+    @Param({ "1", "4" })
+    public int maxInFlight;
+
+    // Delay in ms of the simulated unit before every answer
+    @Param({ "0" })
+    public int latency;
+
+    private DanthermSimulator simulator;
+
+    private DanthermModbus modbus;
+
+    private int fanSpeed;
+
+    @Setup
+    public void setUp() throws Exception {
+        simulator = new DanthermSimulator(0);
+        simulator.setLatency(latency);
+
+        // A unit running at fan speed 2 in a mild climate, at the register addresses of the HCV5
+        simulator.setInt(323, 2);
+        simulator.setInt(99, 1250);
+        simulator.setInt(101, 1310);
+        simulator.setFloat(131, 12.3f);
+        simulator.setFloat(133, 19.2f);
+        simulator.setFloat(135, 21.4f);
+        simulator.setFloat(137, 14.8f);
+        simulator.setInt(195, 48);
+        simulator.setInt(339, 55);
+
+        DanthermReadPlanner planner = new DanthermReadPlanner(maxReadGap, DanthermReadPlanner.MAX_SIZE);
+        modbus = new DanthermModbus(InetAddress.getLoopbackAddress(), simulator.getPort(), 3600, planner,
+                maxInFlight);
+
+        // The first poll reads all values that are polled at all
+        long requests = simulator.getRequestCount();
+        modbus.poll();
+        int reads = planner.plan(DanthermRegister.readWith(DanthermRefresh.SLOW)).size();
+        if (simulator.getRequestCount() - requests != reads || modbus.fan1rpm != 1250
+                || modbus.temperatureSupply != 19.2f) {
+            throw new IllegalStateException("Poll of the simulated HCV5 unit failed");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        modbus.dispose();
+        simulator.close();
+    }
+
+    @Benchmark
+    public int poll() {
+        modbus.poll();
+        return modbus.takeChangedValues();
+    }
+
+    @Benchmark
+    public int writeFanSpeed() {
+        fanSpeed = fanSpeed % 4 + 1;
+        modbus.setFanSpeed(fanSpeed);
+        return modbus.takeChangedValues();
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dobiss.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@link DobissFrameBenchmark} measures building the command frames of relay and dimmer modules, and
+ * decoding their status answers. Every decode alternates between two answers, so each one changes outputs.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DobissFrameBenchmark {
+
+    private final DobissRelay relay = new DobissRelay();
+    private final DobissDimmer dimmer = new DobissDimmer();
+
+    private final ByteBuffer[] relayAnswers = new ByteBuffer[2];
+    private final ByteBuffer[] dimmerAnswers = new ByteBuffer[2];
+
+    private int value;
+
+    @Setup
+    public void setUp() {
+        relay.setModuleAddress(1);
+        dimmer.setModuleAddress(2);
+
+        relayAnswers[0] = answer(1, new int[] { 1, 0, 1, 0, 1, 0, 1, 0, 1, 0, 1, 0 });
+        relayAnswers[1] = answer(1, new int[] { 0, 1, 0, 1, 0, 1, 0, 1, 0, 1, 0, 1 });
+        dimmerAnswers[0] = answer(2, new int[] { 0, 25, 50, 100 });
+        dimmerAnswers[1] = answer(2, new int[] { 100, 50, 25, 0 });
+    }
+
+    private static ByteBuffer answer(int moduleAddress, int[] outputs) {
+        byte[] answer = new byte[DobissFrameCodec.STATUS_ANSWER_LENGTH];
+        System.arraycopy(DobissFrameCodec.statusQuery(moduleAddress), 0, answer, 0, DobissFrameCodec.HEADER_LENGTH);
+        for (int i = 0; i < answer.length - DobissFrameCodec.STATUS_OFFSET; i++) {
+            answer[DobissFrameCodec.STATUS_OFFSET + i] = i < outputs.length ? (byte) outputs[i] : -1;
+        }
+        return ByteBuffer.wrap(answer);
+    }
+
+    @Benchmark
+    public byte[][] relayCommand() {
+        value ^= 1;
+        return relay.commandFrames(12, value);
+    }
+
+    @Benchmark
+    public byte[][] dimmerCommand() {
+        value ^= 1;
+        return dimmer.commandFrames(4, value * 100);
+    }
+
+    @Benchmark
+    public int relayStatus() throws IOException {
+        value ^= 1;
+        ByteBuffer answer = relayAnswers[value];
+        DobissFrameCodec.checkOutputs(answer, DobissRelay.OUTPUT_COUNT, relay.getMaxValue());
+        return relay.storeOutputs(answer);
+    }
+
+    @Benchmark
+    public int dimmerStatus() throws IOException {
+        value ^= 1;
+        ByteBuffer answer = dimmerAnswers[value];
+        DobissFrameCodec.checkOutputs(answer, DobissDimmer.OUTPUT_COUNT, dimmer.getMaxValue());
+        return dimmer.storeOutputs(answer);
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dobiss.internal;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openhab.binding.dobiss.test.DobissGatewaySimulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@link DobissPollBenchmark} measures complete round trips through a {@link DobissGateway} to a simulated
+ * Dobiss IP interface on the loopback interface: a poll cycle querying the status of a number of relay modules,
+ * and a single relay command. Latencies are sampled, so the results include their percentiles.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DobissPollBenchmark {
+
+    // Number of relay modules queried by one poll cycle
+    @Param({ "1", "4", "16" })
+    public int moduleCount;
+
+    // Delay in ms of the simulated gateway before every answer
+    @Param({ "0" })
+    public int latency;
+
+    private DobissGatewaySimulator simulator;
+
+    private DobissGateway gateway;
+
+    private DobissRelay[] relays;
+
+    private CompletableFuture<?>[] queries;
+
+    private int value;
+
+    @Setup
+    public void setUp() throws IOException {
+        simulator = new DobissGatewaySimulator(0);
+        simulator.setLatency(latency);
+        gateway = DobissGateway.acquire("127.0.0.1:" + simulator.getPort());
+
+        relays = new DobissRelay[moduleCount];
+        queries = new CompletableFuture<?>[moduleCount];
+        for (int i = 0; i < moduleCount; i++) {
+            relays[i] = new DobissRelay();
+            relays[i].setModuleAddress(i + 1);
+            relays[i].setGateway(gateway);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        DobissGateway.release(gateway);
+        simulator.close();
+    }
+
+    @Benchmark
+    public int poll() throws IOException {
+        for (int i = 0; i < relays.length; i++) {
+            queries[i] = relays[i].queryStatus();
+        }
+        DobissGateway.await(CompletableFuture.allOf(queries));
+        return relays[0].takeChangedOutputs();
+    }
+
+    @Benchmark
+    public int command() throws IOException {
+        value ^= 1;
+        DobissGateway.await(relays[0].sendCommand(1, value));
+        return relays[0].getState();
+    }
+}
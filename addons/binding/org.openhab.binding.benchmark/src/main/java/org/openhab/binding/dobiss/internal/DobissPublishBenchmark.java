@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dobiss.internal;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.smarthome.config.core.Configuration;
+import org.eclipse.smarthome.core.thing.Thing;
+import org.eclipse.smarthome.core.thing.binding.builder.ThingBuilder;
+import org.openhab.binding.benchmark.DiscardingCallback;
+import org.openhab.binding.dobiss.test.DobissGatewaySimulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@link DobissPublishBenchmark} measures how the {@link DobissHandler} publishes the outputs of 4 relay
+ * and 2 dimmer modules (56 channels, all linked) after a poll, with a given number of them changed. The
+ * handler is initialized against a simulated gateway and disposed again before measuring, so no poll runs
+ * in the background; the changes are stored in the modules as acknowledged commands.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DobissPublishBenchmark {
+
+    // Number of outputs that changed since the previous publication
+    @Param({ "0", "1", "8", "56" })
+    public int changedChannels;
+
+    private final LongAdder callbacks = new LongAdder();
+
+    private DobissGatewaySimulator simulator;
+
+    private DobissHandler handler;
+
+    // Module and output of every output to change, spread over the modules in channel order
+    private DobissModule[] changedModules;
+    private int[] changedOutputs;
+
+    @Setup
+    public void setUp() throws Exception {
+        simulator = new DobissGatewaySimulator(0);
+
+        Map<String, Object> configuration = new HashMap<>();
+        configuration.put("ipAddress", "127.0.0.1:" + simulator.getPort());
+        configuration.put("relayAddresses", "1,2,3,4");
+        configuration.put("dimmerAddresses", "5,6");
+        configuration.put("pollingInterval", BigDecimal.valueOf(3600));
+        configuration.put("activePollingInterval", BigDecimal.valueOf(60000));
+        configuration.put("activePollingWindow", BigDecimal.ZERO);
+        Thing thing = ThingBuilder.create(DobissBindingConstants.THING_TYPE_DOMOTICS, "benchmark")
+                .withConfiguration(new Configuration(configuration)).build();
+
+        handler = new DobissHandler(thing);
+        handler.setCallback(DiscardingCallback.create(callbacks));
+        handler.initialize();
+
+        // Wait for the probe to finish, then stop the handler polling before the first value is published
+        List<CompletableFuture<Void>> queries = new ArrayList<>();
+        for (DobissModule module : handler.getModules()) {
+            queries.add(module.queryStatus());
+        }
+        DobissGateway.await(CompletableFuture.allOf(queries.toArray(new CompletableFuture<?>[queries.size()])));
+        handler.dispose();
+        handler.publishValues();
+
+        changedModules = new DobissModule[changedChannels];
+        changedOutputs = new int[changedChannels];
+        int i = 0;
+        for (DobissModule module : handler.getModules()) {
+            for (int id = 1; id <= module.getOutputCount() && i < changedChannels; id++, i++) {
+                changedModules[i] = module;
+                changedOutputs[i] = id;
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        simulator.close();
+    }
+
+    @Benchmark
+    public void publishValues() {
+        for (int i = 0; i < changedModules.length; i++) {
+            DobissModule module = changedModules[i];
+            int id = changedOutputs[i];
+            module.applyCommand(id, module.getOutput(id) == 0 ? 1 : 0);
+        }
+        handler.publishValues();
+    }
+}
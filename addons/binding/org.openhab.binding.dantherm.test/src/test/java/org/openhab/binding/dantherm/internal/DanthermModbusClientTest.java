@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dantherm.internal;
+
+import static org.junit.Assert.*;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests that the {@link DanthermModbusClient} matches pipelined answers to their requests by transaction
+ * identifier, whatever order the unit answers in.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public class DanthermModbusClientTest {
+
+    // Time in s a test waits for a request before it fails
+    private static final int TIMEOUT = 10;
+
+    // Register address the unit answers with an illegal data address exception
+    private static final int MISSING_ADDRESS = 9999;
+
+    @Nullable
+    private Unit unit;
+
+    @Nullable
+    private DanthermModbusClient client;
+
+    /**
+     * A Modbus TCP unit that collects a batch of requests and then answers them in reverse order. Register n
+     * holds the value n.
+     */
+    private static class Unit implements Runnable {
+        private final ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        private final Thread thread = new Thread(this, "dantherm-test-unit");
+        private final int batch;
+        private final boolean unknownFirst;
+
+        Unit(int batch, boolean unknownFirst) throws IOException {
+            this.batch = batch;
+            this.unknownFirst = unknownFirst;
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        void close() throws IOException {
+            serverSocket.close();
+        }
+
+        @Override
+        public void run() {
+            try (Socket socket = serverSocket.accept()) {
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                OutputStream out = socket.getOutputStream();
+                while (true) {
+                    List<byte[]> answers = new ArrayList<>();
+                    for (int i = 0; i < batch; i++) {
+                        answers.add(answer(in));
+                    }
+                    Collections.reverse(answers);
+                    if (unknownFirst) {
+                        // An answer to a request that is not in flight, e.g. one that timed out before
+                        byte[] unknown = answers.get(0).clone();
+                        unknown[0] = (byte) 0x7F;
+                        out.write(unknown);
+                    }
+                    for (byte[] answer : answers) {
+                        out.write(answer);
+                    }
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // The test closed the unit
+            }
+        }
+
+        private static byte[] answer(DataInputStream in) throws IOException {
+            int id = in.readUnsignedShort();
+            in.readUnsignedShort();
+            int length = in.readUnsignedShort();
+            in.readUnsignedByte();
+            byte[] pdu = new byte[length - 1];
+            in.readFully(pdu);
+
+            ByteBuffer request = ByteBuffer.wrap(pdu);
+            int function = request.get() & 0xFF;
+            int address = request.getShort() & 0xFFFF;
+            if (function == DanthermModbusClient.WRITE_MULTIPLE_REGISTERS) {
+                int count = request.getShort() & 0xFFFF;
+                return frame(id, ByteBuffer.allocate(5).put((byte) function).putShort((short) address)
+                        .putShort((short) count));
+            }
+            if (address == MISSING_ADDRESS) {
+                return frame(id, ByteBuffer.allocate(2).put((byte) (function | 0x80)).put((byte) 2));
+            }
+            int count = request.getShort() & 0xFFFF;
+            ByteBuffer answer = ByteBuffer.allocate(2 + count * 2).put((byte) function).put((byte) (count * 2));
+            for (int i = 0; i < count; i++) {
+                answer.putShort((short) (address + i));
+            }
+            return frame(id, answer);
+        }
+
+        private static byte[] frame(int id, ByteBuffer pdu) {
+            return ByteBuffer.allocate(7 + pdu.capacity()).putShort((short) id).putShort((short) 0)
+                    .putShort((short) (pdu.capacity() + 1)).put((byte) 1).put(pdu.array()).array();
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        DanthermModbusClient client = this.client;
+        if (client != null) {
+            client.close();
+        }
+        Unit unit = this.unit;
+        if (unit != null) {
+            unit.close();
+        }
+    }
+
+    @Test
+    public void answersInReverseOrderReachTheirRequests() throws Exception {
+        DanthermModbusClient client = start(4, false);
+
+        List<CompletableFuture<int[]>> reads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            reads.add(client.readHoldingRegisters(100 * (i + 1), 3, new int[3]));
+        }
+
+        for (int i = 0; i < 4; i++) {
+            int address = 100 * (i + 1);
+            assertArrayEquals(new int[] { address, address + 1, address + 2 }, await(reads.get(i)));
+        }
+    }
+
+    @Test
+    public void answerIsDecodedIntoTheArrayOfTheCaller() throws Exception {
+        DanthermModbusClient client = start(1, false);
+        int[] registers = new int[5];
+
+        assertSame(registers, await(client.readHoldingRegisters(7, 2, registers)));
+        assertArrayEquals(new int[] { 7, 8, 0, 0, 0 }, registers);
+    }
+
+    @Test
+    public void modbusExceptionFailsOnlyItsRequest() throws Exception {
+        DanthermModbusClient client = start(3, false);
+
+        CompletableFuture<int[]> before = client.readHoldingRegisters(10, 1, new int[1]);
+        CompletableFuture<int[]> missing = client.readHoldingRegisters(MISSING_ADDRESS, 1, new int[1]);
+        CompletableFuture<int[]> after = client.readHoldingRegisters(20, 1, new int[1]);
+
+        assertEquals(10, await(before)[0]);
+        assertEquals(20, await(after)[0]);
+        try {
+            await(missing);
+            fail("Read of a missing register succeeded");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof DanthermModbusException);
+            assertEquals(2, ((DanthermModbusException) e.getCause()).getCode());
+        }
+    }
+
+    @Test
+    public void answerToUnknownTransactionIsDiscarded() throws Exception {
+        DanthermModbusClient client = start(2, true);
+
+        CompletableFuture<int[]> first = client.readHoldingRegisters(1, 1, new int[1]);
+        CompletableFuture<int[]> second = client.readHoldingRegisters(2, 1, new int[1]);
+
+        assertEquals(1, await(first)[0]);
+        assertEquals(2, await(second)[0]);
+        assertTrue(client.isConnected());
+    }
+
+    @Test
+    public void writeAndReadArePipelinedTogether() throws Exception {
+        DanthermModbusClient client = start(2, false);
+
+        CompletableFuture<int[]> write = client.writeMultipleRegisters(324, new int[] { 3, 0 });
+        CompletableFuture<int[]> read = client.readHoldingRegisters(323, 2, new int[2]);
+
+        await(write);
+        assertArrayEquals(new int[] { 323, 324 }, await(read));
+    }
+
+    @Test
+    public void closedClientFailsRequests() throws Exception {
+        DanthermModbusClient client = start(1, false);
+        client.close();
+
+        try {
+            await(client.readHoldingRegisters(1, 1, new int[1]));
+            fail("Read on a closed client succeeded");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    private DanthermModbusClient start(int batch, boolean unknownFirst) throws IOException {
+        Unit unit = new Unit(batch, unknownFirst);
+        this.unit = unit;
+        DanthermModbusClient client = new DanthermModbusClient("127.0.0.1", unit.getPort(), 4);
+        this.client = client;
+        return client;
+    }
+
+    private static int[] await(CompletableFuture<int[]> future) throws Exception {
+        return future.get(TIMEOUT, TimeUnit.SECONDS);
+    }
+}
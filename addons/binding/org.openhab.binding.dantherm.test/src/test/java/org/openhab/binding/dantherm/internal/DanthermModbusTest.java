@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dantherm.internal;
+
+import static org.junit.Assert.*;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.Test;
+
+/**
+ * Tests the conversion of HCV5 register pairs into values. Registers are read as signed 16 bit values.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public class DanthermModbusTest {
+
+    @Test
+    public void floatIsReadHighWordFirst() {
+        assertEquals(25.0f, DanthermModbus.convertHCV5RegistersToFloat(0x41C8, 0), 0);
+    }
+
+    @Test
+    public void negativeFloatSurvivesTheSignedHighWord() {
+        assertEquals(-25.0f, DanthermModbus.convertHCV5RegistersToFloat((short) 0xC1C8, 0), 0);
+    }
+
+    @Test
+    public void signedLowWordOfAFloatIsTakenUnsigned() {
+        int bits = Float.floatToIntBits(21.3f);
+
+        float value = DanthermModbus.convertHCV5RegistersToFloat((short) (bits >>> 16), (short) bits);
+
+        assertEquals(21.3f, value, 0);
+    }
+
+    @Test
+    public void smallWholeNumberIsTheLowWord() {
+        assertEquals(1000, DanthermModbus.convertHCV5IntsToInt(0, 1000));
+        assertEquals(0, DanthermModbus.convertHCV5IntsToInt(0, 0));
+    }
+
+    @Test
+    public void negativeWholeNumberKeepsItsSign() {
+        assertEquals(-5, DanthermModbus.convertHCV5IntsToInt(-1, -5));
+    }
+
+    @Test
+    public void lowWordAboveTheSignedRangeIsTakenUnsigned() {
+        assertEquals(40000, DanthermModbus.convertHCV5IntsToInt(0, (short) 40000));
+    }
+}
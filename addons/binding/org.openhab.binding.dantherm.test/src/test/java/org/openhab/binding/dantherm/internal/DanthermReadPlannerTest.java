@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dantherm.internal;
+
+import static org.junit.Assert.*;
+import static org.openhab.binding.dantherm.internal.DanthermRegister.*;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.Test;
+
+/**
+ * Tests how the {@link DanthermReadPlanner} groups registers into block reads.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public class DanthermReadPlannerTest {
+
+    @Test
+    public void adjacentValuesShareABlock() {
+        List<DanthermReadBlock> blocks = new DanthermReadPlanner(0, DanthermReadPlanner.MAX_SIZE)
+                .plan(EnumSet.of(FAN1_RPM, FAN2_RPM));
+
+        assertEquals("[99+4]", blocks.toString());
+        DanthermReadBlock block = blocks.get(0);
+        assertEquals(0, block.offset(FAN1_RPM));
+        assertEquals(2, block.offset(FAN2_RPM));
+        assertEquals(4, block.getBuffer().length);
+    }
+
+    @Test
+    public void gapUpToTheMaximumIsReadAlong() {
+        // 28 unused registers lie between the second fan and the outdoor temperature
+        EnumSet<DanthermRegister> registers = EnumSet.of(FAN1_RPM, FAN2_RPM, TEMPERATURE_OUTDOOR);
+
+        assertEquals("[99+34]", new DanthermReadPlanner(28, DanthermReadPlanner.MAX_SIZE).plan(registers).toString());
+        assertEquals("[99+4, 131+2]",
+                new DanthermReadPlanner(27, DanthermReadPlanner.MAX_SIZE).plan(registers).toString());
+    }
+
+    @Test
+    public void blockDoesNotGrowBeyondTheMaximumSize() {
+        EnumSet<DanthermRegister> registers = EnumSet.of(TEMPERATURE_OUTDOOR, TEMPERATURE_SUPPLY,
+                TEMPERATURE_EXTRACT, TEMPERATURE_EXHAUST);
+
+        assertEquals("[131+8]", new DanthermReadPlanner(0, 8).plan(registers).toString());
+        assertEquals("[131+6, 137+2]", new DanthermReadPlanner(0, 7).plan(registers).toString());
+        assertEquals("[131+4, 135+4]", new DanthermReadPlanner(0, 4).plan(registers).toString());
+    }
+
+    @Test
+    public void blocksAreOrderedByAddressWhateverTheInputOrder() {
+        List<DanthermReadBlock> blocks = new DanthermReadPlanner(0, DanthermReadPlanner.MAX_SIZE)
+                .plan(Arrays.asList(CO2, FAN_SPEED, FAN1_RPM));
+
+        assertEquals("[99+2, 323+2, 573+2]", blocks.toString());
+    }
+
+    @Test
+    public void defaultPlanReadsEveryValueOnceWithinTheLimits() {
+        EnumSet<DanthermRegister> registers = EnumSet.allOf(DanthermRegister.class);
+        List<DanthermReadBlock> blocks = new DanthermReadPlanner().plan(registers);
+
+        EnumSet<DanthermRegister> planned = EnumSet.noneOf(DanthermRegister.class);
+        int previousEnd = -1;
+        for (DanthermReadBlock block : blocks) {
+            assertTrue(block.getCount() <= DanthermReadPlanner.MAX_SIZE);
+            assertTrue(block.getStart() > previousEnd);
+            previousEnd = block.getStart() + block.getCount();
+
+            for (DanthermRegister register : block.getRegisters()) {
+                assertTrue(planned.add(register));
+                assertTrue(block.offset(register) >= 0);
+                assertTrue(block.offset(register) + DanthermRegister.LENGTH <= block.getCount());
+            }
+        }
+        assertEquals(registers, planned);
+        assertTrue(blocks.size() < registers.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeGapIsRefused() {
+        new DanthermReadPlanner(-1, DanthermReadPlanner.MAX_SIZE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void blockLargerThanARequestIsRefused() {
+        new DanthermReadPlanner(0, DanthermReadPlanner.MAX_SIZE + 1);
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dantherm.internal;
+
+import static org.junit.Assert.*;
+import static org.openhab.binding.dantherm.internal.DanthermRefresh.*;
+
+import java.util.EnumSet;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.Test;
+
+/**
+ * Tests which refresh classes of HCV5 registers are read in which poll.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public class DanthermRefreshTest {
+
+    @Test
+    public void classesAreDueEveryPeriod() {
+        assertTrue(REALTIME.isDue(7));
+        assertTrue(NORMAL.isDue(6));
+        assertFalse(NORMAL.isDue(7));
+        assertTrue(SLOW.isDue(60));
+        assertFalse(SLOW.isDue(59));
+    }
+
+    @Test
+    public void registersReadWhenConnectingAreNeverPolled() {
+        for (long poll = 0; poll < 100; poll++) {
+            assertFalse(ONCE.isDue(poll));
+        }
+    }
+
+    @Test
+    public void slowestDueClassIsFound() {
+        assertEquals(SLOW, DanthermRefresh.slowestDue(0));
+        assertEquals(REALTIME, DanthermRefresh.slowestDue(1));
+        assertEquals(NORMAL, DanthermRefresh.slowestDue(3));
+        assertEquals(NORMAL, DanthermRefresh.slowestDue(27));
+        assertEquals(SLOW, DanthermRefresh.slowestDue(30));
+    }
+
+    @Test
+    public void pollReadsAllFasterClassesAlong() {
+        for (DanthermRegister register : DanthermRegister.readWith(NORMAL)) {
+            assertTrue(register.getRefresh() == REALTIME || register.getRefresh() == NORMAL);
+        }
+        assertTrue(DanthermRegister.readWith(NORMAL).containsAll(DanthermRegister.readWith(REALTIME)));
+        assertTrue(DanthermRegister.readWith(SLOW).containsAll(DanthermRegister.readWith(NORMAL)));
+    }
+
+    @Test
+    public void connectingReadsOnlyTheFixedValues() {
+        EnumSet<DanthermRegister> once = DanthermRegister.readWith(ONCE);
+
+        assertFalse(once.isEmpty());
+        for (DanthermRegister register : once) {
+            assertEquals(ONCE, register.getRefresh());
+        }
+        assertFalse(DanthermRegister.readWith(SLOW).removeAll(once));
+    }
+}
@@ -29,6 +29,9 @@ public class DanthermBindingConstants {
 
     private static final String BINDING_ID = "dantherm";
 
+    // Name of the thread pool shared by the periodic jobs of all things of the binding
+    public static final String THREAD_POOL_NAME = BINDING_ID;
+
     // List of all Thing Type UIDs
     public static final ThingTypeUID THING_TYPE_HCV5 = new ThingTypeUID(BINDING_ID, "hcv5");
 
@@ -27,4 +27,11 @@ public class DanthermConfiguration {
     public boolean simulationMode;
 
     public int pollingInterval;
+
+    // Unused registers that may be read between two values, and the most registers read at once
+    public int maxReadGap = DanthermReadPlanner.DEFAULT_MAX_GAP;
+    public int maxReadSize = DanthermReadPlanner.MAX_SIZE;
+
+    // Requests sent before their answers arrived
+    public int maxInFlight = DanthermModbusClient.DEFAULT_MAX_IN_FLIGHT;
 }
@@ -15,14 +15,14 @@ package org.openhab.binding.dantherm.internal;
 import static org.openhab.binding.dantherm.internal.DanthermBindingConstants.*;
 
 import java.net.InetAddress;
-import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang.StringUtils;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
-import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.eclipse.smarthome.core.thing.Channel;
 import org.eclipse.smarthome.core.thing.ChannelUID;
 import org.eclipse.smarthome.core.thing.Thing;
@@ -46,37 +46,39 @@ public class DanthermHandler extends BaseThingHandler {
 
     private final Logger logger = LoggerFactory.getLogger(DanthermHandler.class);
 
-    // Timer for pushing the updates of the HCV5 to the UI
+    // Job connecting to the HCV5 unit in the background
     @Nullable
-    Timer timer;
+    private Future<?> connectJob;
+
+    // Set when the handler is disposed, so a connection made late is closed again
+    private boolean disposed;
 
     @Nullable
     private String ipAddress = null;
     private int pollingInterval;
-    private int pollingDelay = 1000;
+
+    // Groups the registers of a poll into block reads
+    private DanthermReadPlanner readPlanner = new DanthermReadPlanner();
+
+    // Number of Modbus requests sent before their answers arrived
+    private int maxInFlight = DanthermModbusClient.DEFAULT_MAX_IN_FLIGHT;
 
     private boolean simulationMode = false;
 
-    // Caching values to avoid unnecessary updates
-    private float HCV5Fan1RPM = (float) -1.1;
-    private float HCV5Fan2RPM = (float) -1.1;
-    private float HCV5Temperature1 = (float) -99.99;
-    private float HCV5Temperature2 = (float) -99.99;
-    private float HCV5Temperature3 = (float) -99.99;
-    private float HCV5Temperature4 = (float) -99.99;
-    private int HCV5FanSpeed = -1;
-    private int HCV5CurrentUnitMode = -1;
-    private int HCV5ActiveUnitMode = -1;
-    private int HCV5RelativeHumidity = -1;
-    private int HCV5RelativeHumiditySetPoint = -1;
-    private int HCV5VOC = -1;
-    private int HCV5CO2 = -1;
+    // Channel of every value of the HCV5 unit, at the index of the value
+    private static final String[] VALUE_CHANNELS = { CHANNEL_HCV5_FANSPEED, CHANNEL_HCV5_CURRENT_UNITMODE,
+            CHANNEL_HCV5_ACTIVE_UNITMODE, CHANNEL_HCV5_FANRPM1, CHANNEL_HCV5_FANRPM2, CHANNEL_HCV5_TEMPERATURE1,
+            CHANNEL_HCV5_TEMPERATURE2, CHANNEL_HCV5_TEMPERATURE3, CHANNEL_HCV5_TEMPERATURE4, CHANNEL_HCV5_RH,
+            CHANNEL_HCV5_RH_SETPOINT, CHANNEL_HCV5_VOC, CHANNEL_HCV5_CO2 };
+
+    // Ids of the linked channels, kept up to date as channels are linked and unlinked
+    private final Set<String> linkedChannels = ConcurrentHashMap.newKeySet();
 
     @Nullable
     private DanthermConfiguration config = null;
 
     @Nullable
-    private DanthermModbus danthermModbus = null;
+    private volatile DanthermModbus danthermModbus = null;
 
     public DanthermHandler(Thing thing) {
         super(thing);
@@ -110,252 +112,168 @@ public class DanthermHandler extends BaseThingHandler {
         }
         pollingInterval = config.pollingInterval;
 
+        // Check read planning
+        try {
+            readPlanner = new DanthermReadPlanner(config.maxReadGap, config.maxReadSize);
+        } catch (IllegalArgumentException e) {
+            logger.debug("DanthermHandler config of {} is invalid. Check configuration", thing.getUID());
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR,
+                    "Invalid Dantherm config. " + e.getMessage() + ".");
+            return;
+        }
+
+        // Check pipelining
+        if (config.maxInFlight < 1 || config.maxInFlight > DanthermModbusClient.MAX_IN_FLIGHT) {
+            logger.debug("DanthermHandler config of {} is invalid. Check configuration", thing.getUID());
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR,
+                    "Invalid Dantherm config. Requests in flight is not between 1 and "
+                            + DanthermModbusClient.MAX_IN_FLIGHT + ".");
+            return;
+        }
+        maxInFlight = config.maxInFlight;
+
         simulationMode = config.simulationMode;
 
+        linkedChannels.clear();
+        for (Channel channel : thing.getChannels()) {
+            if (isLinked(channel.getUID().getId())) {
+                linkedChannels.add(channel.getUID().getId());
+            }
+        }
+
         if (config.simulationMode) {
             // No communication needed; just fake a hcv5 unit is present.
 
             updateStatus(ThingStatus.ONLINE);
         } else {
-            // TODO: Initialize the thing. If done set status to ONLINE to indicate proper working.
-            // Long running initialization should be done asynchronously in background.
-            try {
-                danthermModbus = new DanthermModbus(InetAddress.getByName(ipAddress), pollingInterval);
-                updateStatus(ThingStatus.ONLINE);
-            } catch (Exception e) {
-                e.printStackTrace();
-
-                logger.debug("Communication to HCV5 unit not implemented!");
-                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
-                        "Unable to communicate with HCV5 unit");
+            // Checking the connection blocks, so it is done in the background and the thing goes online or
+            // offline once it is done
+            updateStatus(ThingStatus.UNKNOWN);
+            synchronized (this) {
+                disposed = false;
+                connectJob = ThreadPoolManager.getScheduledPool(THREAD_POOL_NAME).submit(this::connect);
+            }
+        }
+    }
+
+    /**
+     * Connects to the HCV5 unit. Runs on the binding thread pool, as checking the connection blocks.
+     */
+    private void connect() {
+        DanthermModbus danthermModbus;
+        try {
+            danthermModbus = new DanthermModbus(InetAddress.getByName(ipAddress), pollingInterval, readPlanner,
+                    maxInFlight);
+        } catch (Exception e) {
+            logger.debug("Unable to communicate with HCV5 unit of {}: {}", thing.getUID(), e.getMessage());
+            synchronized (this) {
+                if (!disposed) {
+                    updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR,
+                            "Unable to communicate with HCV5 unit");
+                }
             }
+            return;
         }
 
-        // Starting UI pushing
-        startAutomaticRefresh();
+        synchronized (this) {
+            if (disposed) {
+                danthermModbus.dispose();
+                return;
+            }
+            this.danthermModbus = danthermModbus;
+            // The values are pushed to the channels as soon as a poll changed them
+            danthermModbus.setListener(this::publishValues);
+            updateStatus(ThingStatus.ONLINE);
+        }
     }
 
-    @SuppressWarnings("null")
     @Override
-    public void dispose() {
+    public void channelLinked(ChannelUID channelUID) {
+        linkedChannels.add(channelUID.getId());
+        super.channelLinked(channelUID);
+    }
 
-        timer.cancel();
-        timer.purge();
+    @Override
+    public void channelUnlinked(ChannelUID channelUID) {
+        linkedChannels.remove(channelUID.getId());
+        super.channelUnlinked(channelUID);
+    }
 
-        logger.debug("DanthermHandler for {} is disposing", thing.getUID());
+    @Override
+    public void dispose() {
 
-        super.dispose();
-    }
+        synchronized (this) {
+            disposed = true;
 
-    private void startAutomaticRefresh() {
-        logger.debug("Starting automatic refresh");
+            Future<?> connectJob = this.connectJob;
+            if (connectJob != null) {
+                connectJob.cancel(false);
+                this.connectJob = null;
+            }
 
-        timer = new Timer();
-        timer.scheduleAtFixedRate(new PeriodicTask(), pollingDelay, pollingInterval * 1000);
+            DanthermModbus danthermModbus = this.danthermModbus;
+            if (danthermModbus != null) {
+                danthermModbus.setListener(null);
+                danthermModbus.dispose();
+                this.danthermModbus = null;
+            }
+        }
 
-        logger.debug("Start automatic refresh every {} seconds", pollingInterval);
-    }
+        logger.debug("DanthermHandler for {} is disposing", thing.getUID());
 
-    private void publishValue(ChannelUID channelUID) {
-        logger.debug("Publishing value...");
+        super.dispose();
+    }
 
-        String channelID = channelUID.getId();
-        switch (channelID) {
-            case CHANNEL_HCV5_TEMPERATURE1:
-                publishHCV5Temperature1(channelUID);
+    /**
+     * Publishes one value of the HCV5 unit to its channel.
+     */
+    private void publishValue(DanthermModbus danthermModbus, int value) {
+        switch (value) {
+            case DanthermModbus.VALUE_FAN_SPEED:
+                updateState(CHANNEL_HCV5_FANSPEED, DanthermStates.decimal(danthermModbus.speedLevelFan));
                 break;
-            case CHANNEL_HCV5_TEMPERATURE2:
-                publishHCV5Temperature2(channelUID);
+            case DanthermModbus.VALUE_CURRENT_UNITMODE:
+                updateState(CHANNEL_HCV5_CURRENT_UNITMODE, DanthermStates.decimal(danthermModbus.currentUnitMode));
                 break;
-            case CHANNEL_HCV5_TEMPERATURE3:
-                publishHCV5Temperature3(channelUID);
+            case DanthermModbus.VALUE_ACTIVE_UNITMODE:
+                updateState(CHANNEL_HCV5_ACTIVE_UNITMODE, DanthermStates.decimal(danthermModbus.activeUnitMode));
                 break;
-            case CHANNEL_HCV5_TEMPERATURE4:
-                publishHCV5Temperature4(channelUID);
+            case DanthermModbus.VALUE_FAN1_RPM:
+                updateState(CHANNEL_HCV5_FANRPM1, DanthermStates.decimal(danthermModbus.fan1rpm));
                 break;
-            case CHANNEL_HCV5_FANSPEED:
-                publishHCV5FanSpeed(channelUID);
+            case DanthermModbus.VALUE_FAN2_RPM:
+                updateState(CHANNEL_HCV5_FANRPM2, DanthermStates.decimal(danthermModbus.fan2rpm));
                 break;
-            case CHANNEL_HCV5_CURRENT_UNITMODE:
-                publishHCV5CurrentUnitMode(channelUID);
+            case DanthermModbus.VALUE_TEMPERATURE_OUTDOOR:
+                updateState(CHANNEL_HCV5_TEMPERATURE1, DanthermStates.decimal(danthermModbus.temperatureOutdoor));
                 break;
-            case CHANNEL_HCV5_ACTIVE_UNITMODE:
-                publishHCV5ActiveUnitMode(channelUID);
+            case DanthermModbus.VALUE_TEMPERATURE_SUPPLY:
+                updateState(CHANNEL_HCV5_TEMPERATURE2, DanthermStates.decimal(danthermModbus.temperatureSupply));
                 break;
-            case CHANNEL_HCV5_RH:
-                publishHCV5RelativeHumidity(channelUID);
+            case DanthermModbus.VALUE_TEMPERATURE_EXTRACT:
+                updateState(CHANNEL_HCV5_TEMPERATURE3, DanthermStates.decimal(danthermModbus.temperatureExtract));
                 break;
-            case CHANNEL_HCV5_RH_SETPOINT:
-                publishHCV5RelativeHumiditySetpoint(channelUID);
+            case DanthermModbus.VALUE_TEMPERATURE_EXHAUST:
+                updateState(CHANNEL_HCV5_TEMPERATURE4, DanthermStates.decimal(danthermModbus.temperatureExhaust));
                 break;
-            case CHANNEL_HCV5_VOC:
-                publishHCV5VOC(channelUID);
+            case DanthermModbus.VALUE_RELATIVE_HUMIDITY:
+                updateState(CHANNEL_HCV5_RH, DanthermStates.decimal(danthermModbus.relativeHumidity));
                 break;
-            case CHANNEL_HCV5_CO2:
-                publishHCV5CO2(channelUID);
+            case DanthermModbus.VALUE_RELATIVE_HUMIDITY_SETPOINT:
+                updateState(CHANNEL_HCV5_RH_SETPOINT, DanthermStates.decimal(danthermModbus.relativeHumiditySetpoint));
                 break;
-            case CHANNEL_HCV5_FANRPM1:
-                publishHCV5FanRPM1(channelUID);
+            case DanthermModbus.VALUE_VOC:
+                updateState(CHANNEL_HCV5_VOC, DanthermStates.decimal(danthermModbus.voc));
                 break;
-            case CHANNEL_HCV5_FANRPM2:
-                publishHCV5FanRPM2(channelUID);
+            case DanthermModbus.VALUE_CO2:
+                updateState(CHANNEL_HCV5_CO2, DanthermStates.decimal(danthermModbus.co2));
                 break;
             default:
-                logger.debug("Can not update channel with ID : {} - channel name might be wrong!", channelID);
+                logger.debug("Can not publish value {} - value index might be wrong!", value);
                 break;
         }
     }
 
-    @SuppressWarnings("null")
-    private void publishHCV5FanRPM1(ChannelUID channelUID) {
-        logger.debug("Publishing fan rpm1");
-
-        // Only update when changed
-        if (HCV5Fan1RPM != danthermModbus.fan1rpm) {
-            updateState(CHANNEL_HCV5_FANRPM1, DecimalType.valueOf(Float.toString(danthermModbus.fan1rpm)));
-            HCV5Fan1RPM = danthermModbus.fan1rpm;
-        }
-    }
-
-    @SuppressWarnings("null")
-    private void publishHCV5FanRPM2(ChannelUID channelUID) {
-        logger.debug("Publishing fan rpm2");
-
-        if (HCV5Fan2RPM != danthermModbus.fan2rpm) {
-            updateState(CHANNEL_HCV5_FANRPM2, DecimalType.valueOf(Float.toString(danthermModbus.fan2rpm)));
-            HCV5Fan2RPM = danthermModbus.fan2rpm;
-        }
-    }
-
-    @SuppressWarnings("null")
-    private void publishHCV5Temperature1(ChannelUID channelUID) {
-        logger.debug("Publishing temperature1");
-
-        // Only update when changed
-        if (danthermModbus.temperatureOutdoor != HCV5Temperature1) {
-            updateState(CHANNEL_HCV5_TEMPERATURE1,
-                    DecimalType.valueOf(Float.toString(danthermModbus.temperatureOutdoor)));
-            HCV5Temperature1 = danthermModbus.temperatureOutdoor;
-        }
-    }
-
-    @SuppressWarnings("null")
-    private void publishHCV5Temperature2(ChannelUID channelUID) {
-        logger.debug("Publishing temperature2");
-
-        // Only update when changed
-        if (danthermModbus.temperatureSupply != HCV5Temperature2) {
-            updateState(CHANNEL_HCV5_TEMPERATURE2,
-                    DecimalType.valueOf(Float.toString(danthermModbus.temperatureSupply)));
-            HCV5Temperature2 = danthermModbus.temperatureSupply;
-        }
-    }
-
-    @SuppressWarnings("null")
-    private void publishHCV5Temperature3(ChannelUID channelUID) {
-        logger.debug("Publishing temperature3");
-
-        // Only update when changed
-        if (danthermModbus.temperatureExtract != HCV5Temperature3) {
-            updateState(CHANNEL_HCV5_TEMPERATURE3,
-                    DecimalType.valueOf(Float.toString(danthermModbus.temperatureExtract)));
-            HCV5Temperature3 = danthermModbus.temperatureExtract;
-        }
-    }
-
-    @SuppressWarnings("null")
-    private void publishHCV5Temperature4(ChannelUID channelUID) {
-        logger.debug("Publishing temperature4");
-
-        // Only update when changed
-        if (danthermModbus.temperatureExhaust != HCV5Temperature4) {
-            updateState(CHANNEL_HCV5_TEMPERATURE4,
-                    DecimalType.valueOf(Float.toString(danthermModbus.temperatureExhaust)));
-            HCV5Temperature4 = danthermModbus.temperatureExhaust;
-        }
-    }
-
-    @SuppressWarnings("null")
-    private void publishHCV5FanSpeed(ChannelUID channelUID) {
-        logger.debug("Publishing fan speed");
-
-        // Only update when changed
-        if (danthermModbus.speedLevelFan != HCV5FanSpeed) {
-            updateState(CHANNEL_HCV5_FANSPEED, DecimalType.valueOf(Integer.toString(danthermModbus.speedLevelFan)));
-            HCV5FanSpeed = danthermModbus.speedLevelFan;
-        }
-    }
-
-    @SuppressWarnings("null")
-    private void publishHCV5CurrentUnitMode(ChannelUID channelUID) {
-        logger.debug("Publishing current unit mode");
-
-        // Only update when changed
-        if (danthermModbus.currentUnitMode != HCV5CurrentUnitMode) {
-            updateState(CHANNEL_HCV5_CURRENT_UNITMODE,
-                    DecimalType.valueOf(Integer.toString(danthermModbus.currentUnitMode)));
-            HCV5CurrentUnitMode = danthermModbus.currentUnitMode;
-        }
-    }
-
-    @SuppressWarnings("null")
-    private void publishHCV5ActiveUnitMode(ChannelUID channelUID) {
-        logger.debug("Publishing active unit mode");
-
-        // Only update when changed
-        if (danthermModbus.activeUnitMode != HCV5ActiveUnitMode) {
-            updateState(CHANNEL_HCV5_ACTIVE_UNITMODE,
-                    DecimalType.valueOf(Integer.toString(danthermModbus.activeUnitMode)));
-            HCV5ActiveUnitMode = danthermModbus.activeUnitMode;
-        }
-    }
-
-    @SuppressWarnings("null")
-    private void publishHCV5RelativeHumidity(ChannelUID channelUID) {
-        logger.debug("Publishing relative humidity");
-
-        // Only update when changed
-        if (HCV5RelativeHumidity != danthermModbus.relativeHumidity) {
-            updateState(CHANNEL_HCV5_RH, DecimalType.valueOf(Integer.toString(danthermModbus.relativeHumidity)));
-            HCV5RelativeHumidity = danthermModbus.relativeHumidity;
-        }
-    }
-
-    @SuppressWarnings("null")
-    private void publishHCV5RelativeHumiditySetpoint(ChannelUID channelUID) {
-        logger.debug("Publishing relative humidity setpoint");
-
-        // Only update when changed
-        if (HCV5RelativeHumiditySetPoint != danthermModbus.relativeHumiditySetpoint) {
-            updateState(CHANNEL_HCV5_RH_SETPOINT,
-                    DecimalType.valueOf(Integer.toString(danthermModbus.relativeHumiditySetpoint)));
-            HCV5RelativeHumiditySetPoint = danthermModbus.relativeHumiditySetpoint;
-        }
-    }
-
-    @SuppressWarnings("null")
-    private void publishHCV5VOC(ChannelUID channelUID) {
-        logger.debug("Publishing VOC");
-
-        // Only update when changed
-        if (HCV5VOC != danthermModbus.voc) {
-            updateState(CHANNEL_HCV5_VOC, DecimalType.valueOf(Integer.toString(danthermModbus.voc)));
-            HCV5VOC = danthermModbus.voc;
-        }
-    }
-
-    @SuppressWarnings("null")
-    private void publishHCV5CO2(ChannelUID channelUID) {
-        logger.debug("Publishing CO2");
-
-        // Only update when changed
-        if (HCV5CO2 != danthermModbus.co2) {
-            updateState(CHANNEL_HCV5_CO2, DecimalType.valueOf(Integer.toString(danthermModbus.co2)));
-            HCV5CO2 = danthermModbus.co2;
-        }
-
-    }
-
     @Override
     public void handleUpdate(ChannelUID channelUID, State newState) {
         // TODO Auto-generated method stub
@@ -376,6 +294,11 @@ public class DanthermHandler extends BaseThingHandler {
 
         logger.debug("Handle command for {} on channel {}: {}", thing.getUID(), channelUID, command);
 
+        if (!simulationMode && danthermModbus == null) {
+            logger.debug("Not connected to HCV5 unit of {} yet, ignoring command {}", thing.getUID(), command);
+            return;
+        }
+
         // Note: if communication with thing fails for some reason,
         // indicate that by setting the status with detail information
         // updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR,
@@ -419,10 +342,10 @@ public class DanthermHandler extends BaseThingHandler {
         if (command instanceof RefreshType) {
             if (simulationMode) {
                 // Just fake a temperature
-                updateState(CHANNEL_HCV5_FANRPM1, DecimalType.valueOf("2000.0"));
+                updateState(CHANNEL_HCV5_FANRPM1, DanthermStates.decimal(2000.0f));
 
             } else {
-                updateState(CHANNEL_HCV5_FANRPM1, DecimalType.valueOf(Float.toString(danthermModbus.fan1rpm)));
+                updateState(CHANNEL_HCV5_FANRPM1, DanthermStates.decimal(danthermModbus.fan1rpm));
             }
         } else {
             logger.debug("Command {} not implemented for thing {}", command, thing.getUID());
@@ -436,10 +359,10 @@ public class DanthermHandler extends BaseThingHandler {
         if (command instanceof RefreshType) {
             if (simulationMode) {
                 // Just fake a temperature
-                updateState(CHANNEL_HCV5_FANRPM2, DecimalType.valueOf("2005.0"));
+                updateState(CHANNEL_HCV5_FANRPM2, DanthermStates.decimal(2005.0f));
 
             } else {
-                updateState(CHANNEL_HCV5_FANRPM2, DecimalType.valueOf(Float.toString(danthermModbus.fan2rpm)));
+                updateState(CHANNEL_HCV5_FANRPM2, DanthermStates.decimal(danthermModbus.fan2rpm));
             }
         } else {
             logger.debug("Command {} not implemented for thing {}", command, thing.getUID());
@@ -453,10 +376,10 @@ public class DanthermHandler extends BaseThingHandler {
         if (command instanceof RefreshType) {
             if (simulationMode) {
                 // Just fake a temperature
-                updateState(CHANNEL_HCV5_CO2, DecimalType.valueOf("40"));
+                updateState(CHANNEL_HCV5_CO2, DanthermStates.decimal(40));
 
             } else {
-                updateState(CHANNEL_HCV5_CO2, DecimalType.valueOf(Integer.toString(danthermModbus.co2)));
+                updateState(CHANNEL_HCV5_CO2, DanthermStates.decimal(danthermModbus.co2));
             }
         } else {
             logger.debug("Command {} not implemented for thing {}", command, thing.getUID());
@@ -470,10 +393,10 @@ public class DanthermHandler extends BaseThingHandler {
         if (command instanceof RefreshType) {
             if (simulationMode) {
                 // Just fake a temperature
-                updateState(CHANNEL_HCV5_VOC, DecimalType.valueOf("40"));
+                updateState(CHANNEL_HCV5_VOC, DanthermStates.decimal(40));
 
             } else {
-                updateState(CHANNEL_HCV5_VOC, DecimalType.valueOf(Integer.toString(danthermModbus.voc)));
+                updateState(CHANNEL_HCV5_VOC, DanthermStates.decimal(danthermModbus.voc));
             }
         } else {
             logger.debug("Command {} not implemented for thing {}", command, thing.getUID());
@@ -487,10 +410,10 @@ public class DanthermHandler extends BaseThingHandler {
         if (command instanceof RefreshType) {
             if (simulationMode) {
                 // Just fake a temperature
-                updateState(CHANNEL_HCV5_RH, DecimalType.valueOf("40"));
+                updateState(CHANNEL_HCV5_RH, DanthermStates.decimal(40));
 
             } else {
-                updateState(CHANNEL_HCV5_RH, DecimalType.valueOf(Integer.toString(danthermModbus.relativeHumidity)));
+                updateState(CHANNEL_HCV5_RH, DanthermStates.decimal(danthermModbus.relativeHumidity));
             }
         } else {
             logger.debug("Command {} not implemented for thing {}", command, thing.getUID());
@@ -504,11 +427,10 @@ public class DanthermHandler extends BaseThingHandler {
         if (command instanceof RefreshType) {
             if (simulationMode) {
                 // Just fake a temperature
-                updateState(CHANNEL_HCV5_RH_SETPOINT, DecimalType.valueOf("50"));
+                updateState(CHANNEL_HCV5_RH_SETPOINT, DanthermStates.decimal(50));
 
             } else {
-                updateState(CHANNEL_HCV5_RH_SETPOINT,
-                        DecimalType.valueOf(Integer.toString(danthermModbus.relativeHumiditySetpoint)));
+                updateState(CHANNEL_HCV5_RH_SETPOINT, DanthermStates.decimal(danthermModbus.relativeHumiditySetpoint));
             }
         } else {
             logger.debug("Command {} not implemented for thing {}", command, thing.getUID());
@@ -522,10 +444,10 @@ public class DanthermHandler extends BaseThingHandler {
         if (command instanceof RefreshType) {
             if (simulationMode) {
                 // Just fake a temperature
-                updateState(CHANNEL_HCV5_FANSPEED, DecimalType.valueOf("2"));
+                updateState(CHANNEL_HCV5_FANSPEED, DanthermStates.decimal(2));
 
             } else {
-                updateState(CHANNEL_HCV5_FANSPEED, DecimalType.valueOf(Integer.toString(danthermModbus.speedLevelFan)));
+                updateState(CHANNEL_HCV5_FANSPEED, DanthermStates.decimal(danthermModbus.speedLevelFan));
             }
         } else {
             if (simulationMode) {
@@ -557,11 +479,10 @@ public class DanthermHandler extends BaseThingHandler {
         if (command instanceof RefreshType) {
             if (simulationMode) {
                 // Just fake a manual mode
-                updateState(CHANNEL_HCV5_ACTIVE_UNITMODE, DecimalType.valueOf("4"));
+                updateState(CHANNEL_HCV5_ACTIVE_UNITMODE, DanthermStates.decimal(4));
 
             } else {
-                updateState(CHANNEL_HCV5_ACTIVE_UNITMODE,
-                        DecimalType.valueOf(Integer.toString(danthermModbus.activeUnitMode)));
+                updateState(CHANNEL_HCV5_ACTIVE_UNITMODE, DanthermStates.decimal(danthermModbus.activeUnitMode));
             }
         } else {
             if (simulationMode) {
@@ -579,11 +500,10 @@ public class DanthermHandler extends BaseThingHandler {
         if (command instanceof RefreshType) {
             if (simulationMode) {
                 // Just fake a manual mode
-                updateState(CHANNEL_HCV5_CURRENT_UNITMODE, DecimalType.valueOf("1"));
+                updateState(CHANNEL_HCV5_CURRENT_UNITMODE, DanthermStates.decimal(1));
 
             } else {
-                updateState(CHANNEL_HCV5_CURRENT_UNITMODE,
-                        DecimalType.valueOf(Integer.toString(danthermModbus.currentUnitMode)));
+                updateState(CHANNEL_HCV5_CURRENT_UNITMODE, DanthermStates.decimal(danthermModbus.currentUnitMode));
             }
         } else {
             logger.debug("Command {} not implemented for thing {}", command, thing.getUID());
@@ -597,11 +517,10 @@ public class DanthermHandler extends BaseThingHandler {
         if (command instanceof RefreshType) {
             if (simulationMode) {
                 // Just fake a temperature
-                updateState(CHANNEL_HCV5_TEMPERATURE1, DecimalType.valueOf("19.2"));
+                updateState(CHANNEL_HCV5_TEMPERATURE1, DanthermStates.decimal(19.2f));
 
             } else {
-                updateState(CHANNEL_HCV5_TEMPERATURE1,
-                        DecimalType.valueOf(Float.toString(danthermModbus.temperatureOutdoor)));
+                updateState(CHANNEL_HCV5_TEMPERATURE1, DanthermStates.decimal(danthermModbus.temperatureOutdoor));
             }
         } else {
             logger.debug("Command {} not implemented for thing {}", command, thing.getUID());
@@ -615,11 +534,10 @@ public class DanthermHandler extends BaseThingHandler {
         if (command instanceof RefreshType) {
             if (simulationMode) {
                 // Just fake a temperature
-                updateState(CHANNEL_HCV5_TEMPERATURE2, DecimalType.valueOf("18.2"));
+                updateState(CHANNEL_HCV5_TEMPERATURE2, DanthermStates.decimal(18.2f));
 
             } else {
-                updateState(CHANNEL_HCV5_TEMPERATURE2,
-                        DecimalType.valueOf(Float.toString(danthermModbus.temperatureSupply)));
+                updateState(CHANNEL_HCV5_TEMPERATURE2, DanthermStates.decimal(danthermModbus.temperatureSupply));
             }
         } else {
             logger.debug("Command {} not implemented for thing {}", command, thing.getUID());
@@ -633,11 +551,10 @@ public class DanthermHandler extends BaseThingHandler {
         if (command instanceof RefreshType) {
             if (simulationMode) {
                 // Just fake a temperature
-                updateState(CHANNEL_HCV5_TEMPERATURE3, DecimalType.valueOf("18.6"));
+                updateState(CHANNEL_HCV5_TEMPERATURE3, DanthermStates.decimal(18.6f));
 
             } else {
-                updateState(CHANNEL_HCV5_TEMPERATURE3,
-                        DecimalType.valueOf(Float.toString(danthermModbus.temperatureExtract)));
+                updateState(CHANNEL_HCV5_TEMPERATURE3, DanthermStates.decimal(danthermModbus.temperatureExtract));
             }
         } else {
             logger.debug("Command {} not implemented for thing {}", command, thing.getUID());
@@ -651,31 +568,30 @@ public class DanthermHandler extends BaseThingHandler {
         if (command instanceof RefreshType) {
             if (simulationMode) {
                 // Just fake a temperature
-                updateState(CHANNEL_HCV5_TEMPERATURE4, DecimalType.valueOf("19.0"));
+                updateState(CHANNEL_HCV5_TEMPERATURE4, DanthermStates.decimal(19.0f));
 
             } else {
-                updateState(CHANNEL_HCV5_TEMPERATURE4,
-                        DecimalType.valueOf(Float.toString(danthermModbus.temperatureExhaust)));
+                updateState(CHANNEL_HCV5_TEMPERATURE4, DanthermStates.decimal(danthermModbus.temperatureExhaust));
             }
         } else {
             logger.debug("Command {} not implemented for thing {}", command, thing.getUID());
         }
     }
 
-    class PeriodicTask extends TimerTask {
-
-        @Override
-        public void run() {
+    /**
+     * Publishes the values of the HCV5 unit that changed to their linked channels. Called by the
+     * {@link DanthermModbus} at the end of every poll or write that changed values.
+     */
+    private void publishValues(DanthermModbus danthermModbus, int changed) {
+        // Only the values that changed are visited, in order of their bit
+        while (changed != 0) {
+            int value = Integer.numberOfTrailingZeros(changed);
+            changed &= changed - 1;
 
-            List<Channel> channels = getThing().getChannels();
-            for (Channel channel : channels) {
-                if (isLinked(channel.getUID().getId())) {
-                    publishValue(channel.getUID());
-                }
+            if (linkedChannels.contains(VALUE_CHANNELS[value])) {
+                publishValue(danthermModbus, value);
             }
-
         }
-
     }
 
 }
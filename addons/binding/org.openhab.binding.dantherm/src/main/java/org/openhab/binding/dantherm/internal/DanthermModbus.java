@@ -6,16 +6,18 @@ package org.openhab.binding.dantherm.internal;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.util.Timer;
-import java.util.TimerTask;
-
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import de.re.easymodbus.exceptions.ModbusException;
-import de.re.easymodbus.modbusclient.ModbusClient;
-import de.re.easymodbus.modbusclient.ModbusClient.RegisterOrder;
-
 /**
  * @author bjorn_aelvoet
  *
@@ -26,10 +28,51 @@ public class DanthermModbus {
 
     private InetAddress ipAddress;
 
+    // Modbus TCP port of the HCV5 device
+    private int port;
+
+    // Block reads of a poll by the slowest refresh class due in it, and of the values read once when connecting;
+    // planned once
+    private EnumMap<DanthermRefresh, List<DanthermReadBlock>> readPlans = new EnumMap<>(DanthermRefresh.class);
+
+    // Answers of the block reads of a plan, awaited in order
+    private CompletableFuture<?>[] readAnswers;
+
+    // Number of polls since connecting
+    private long pollCount;
+
+    // Connection to the HCV5 device, kept open for all polls and writes
+    private DanthermSession session;
+
     private int pollingDelay = 1000;
 
-    // Timer for querying the HCV5 device at polling interval
-    private Timer timer;
+    // Job querying the HCV5 device at polling interval
+    private ScheduledFuture<?> pollingJob;
+
+    // Index of every value published to a channel, its bit in the mask of changed values
+    public static final int VALUE_FAN_SPEED = 0;
+    public static final int VALUE_CURRENT_UNITMODE = 1;
+    public static final int VALUE_ACTIVE_UNITMODE = 2;
+    public static final int VALUE_FAN1_RPM = 3;
+    public static final int VALUE_FAN2_RPM = 4;
+    public static final int VALUE_TEMPERATURE_OUTDOOR = 5;
+    public static final int VALUE_TEMPERATURE_SUPPLY = 6;
+    public static final int VALUE_TEMPERATURE_EXTRACT = 7;
+    public static final int VALUE_TEMPERATURE_EXHAUST = 8;
+    public static final int VALUE_RELATIVE_HUMIDITY = 9;
+    public static final int VALUE_RELATIVE_HUMIDITY_SETPOINT = 10;
+    public static final int VALUE_VOC = 11;
+    public static final int VALUE_CO2 = 12;
+    public static final int VALUE_COUNT = 13;
+
+    // Index of registers that are not published to a channel
+    public static final int VALUE_NONE = -1;
+
+    // Values that changed since the mask was last taken; nothing was taken yet, so all values count as changed
+    private final AtomicInteger changedValues = new AtomicInteger((1 << VALUE_COUNT) - 1);
+
+    // Told about the changed values at the end of every poll and write
+    private volatile DanthermValueListener listener;
 
     // All information that HCV5 is exposing is stored here; conversion already happened to logical units (no int
     // registers)
@@ -59,6 +102,10 @@ public class DanthermModbus {
 
     public SwitchPosition switchPosition;
 
+    // Switch position registers, read when connecting
+    private int halLeft;
+    private int halRight;
+
     public int speedLevelFan;
 
     public float fan1rpm;
@@ -87,77 +134,57 @@ public class DanthermModbus {
     // Internal const values used for communication with HCV5
     private static final int TCP_PORT = 502;
 
-    // Serial number registers
-    private static final int prmSystemSerialNumLow = 5;
-
-    // Switch position A/B (is fan1/fan2 for inlet/exhaust or vice versa)
-    // If left is one => postion A => fan1 is extract and fan 2 is supply
-    // If right is one => position B => fan1 is supply and fan2 is extract
-    private static final int prmHALLeft = 83;
-    private static final int prmHALRight = 85;
-
-    // Outdoor temperature (air going into building before exchange heater)
-    private static final int prmRamIdxT1 = 131;
-    // Supply temperature (air going into building after exchange heater)
-    private static final int prmRamIdxT2 = 133;
-    // Extract temperature (air going outside of building before exchange heater)
-    private static final int prmRamIdxT3 = 135;
-    // Exhaust temperature (air going outside of building after exchange heater )
-    private static final int prmRamIdxT4 = 137;
-
-    // Speed level of fans (0 to 4); in manual mode this can be set; in other modes read only
-    private static final int prmRomIdxSpeedLevel = 323;
-    // Fan1 RPM
-    private static final int prmHALTaho1 = 99;
-    // Fan2 RPM
-    private static final int prmHALTaho2 = 101;
-
-    // Current unit mode (read-only)
-    private static final int prmCurrentBLState = 471;
-
-    // Active unit mode (writable)
-    private static final int prmRamIdxUnitMode = 167;
-
-    // Relative humidity (read-only)
-    private static final int prmRamIdxRh3Corrected = 195;
-    // Relative humidity set-point
-    private static final int prmRomIdxRhSetPoint = 339;
-
-    // VOC (read-only)
-    private static final int prmVOC = 429;
+    public DanthermModbus(InetAddress ipAddress, int pollingInterval) throws Exception {
+        this(ipAddress, pollingInterval, new DanthermReadPlanner(), DanthermModbusClient.DEFAULT_MAX_IN_FLIGHT);
+    }
 
-    // CO2 (read-only)
-    private static final int prmHACCO2Val = 573;
+    public DanthermModbus(InetAddress ipAddress, int pollingInterval, DanthermReadPlanner planner, int maxInFlight)
+            throws Exception {
+        this(ipAddress, TCP_PORT, pollingInterval, planner, maxInFlight);
+    }
 
-    public DanthermModbus(InetAddress ipAddress, int pollingInterval) throws Exception {
+    // Connects to another port than the Modbus TCP default, e.g. to a simulated HCV5 device
+    DanthermModbus(InetAddress ipAddress, int port, int pollingInterval, DanthermReadPlanner planner,
+            int maxInFlight) throws Exception {
 
         this.ipAddress = ipAddress;
+        this.port = port;
+
+        int maxBlocks = 0;
+        for (DanthermRefresh refresh : DanthermRefresh.values()) {
+            List<DanthermReadBlock> plan = planner.plan(DanthermRegister.readWith(refresh));
+            readPlans.put(refresh, plan);
+            maxBlocks = Math.max(maxBlocks, plan.size());
+        }
+        this.readAnswers = new CompletableFuture<?>[maxBlocks];
 
         logger.debug("ip address = {} and polling interval = {}", ipAddress.toString(), pollingInterval);
+        logger.debug("Reading values in block reads {}", readPlans);
+
+        session = new DanthermSession(ipAddress.getHostAddress(), port, maxInFlight);
 
         // Check the connection; only if successfully, start timer
         try {
             checkValidConnnection();
         } catch (Exception e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
             logger.debug("Unable to connect with HCV5 device at address {}", ipAddress.getHostAddress());
 
+            session.close();
             throw e;
         }
 
-        timer = new Timer();
-        timer.scheduleAtFixedRate(new PeriodicTask(), pollingDelay, pollingInterval * 1000);
+        long interval = pollingInterval * 1000L;
+        long delay = pollingDelay + ThreadLocalRandom.current().nextLong(interval);
+        pollingJob = ThreadPoolManager.getScheduledPool(DanthermBindingConstants.THREAD_POOL_NAME)
+                .scheduleAtFixedRate(this::poll, delay, interval, TimeUnit.MILLISECONDS);
 
         return;
 
     }
 
     public void dispose() {
-        // Currently nothing to dispose when releasing this object
-
-        timer.cancel();
-        timer.purge();
+        pollingJob.cancel(false);
+        session.close();
 
         return;
     }
@@ -165,41 +192,13 @@ public class DanthermModbus {
     private void checkValidConnnection() throws Exception {
 
         // Checks if we can query some basic information with the given ip address
-        // We read the read-only information here that is of interest
-        int[] holdingRegister;
-
-        int value3;
-        int value4;
-        int value5;
-        int value6;
-
-        ModbusClient modbusClient = new ModbusClient(ipAddress.getHostAddress(), TCP_PORT);
-
-        modbusClient.Connect();
-
-        // Read out system serial number low and high; if successful we have valid connection
-        holdingRegister = modbusClient.ReadHoldingRegisters(prmSystemSerialNumLow, 4);
-        logger.debug("System serial number register values {}, {}, {} and {} read out.",
-                holdingRegister[0] & 0x0000FFFF, holdingRegister[1] & 0x0000FFFF, holdingRegister[2] & 0x0000FFFF,
-                holdingRegister[3] & 0x0000FFFF);
-        // value = ModbusClient.ConvertRegistersToLong(holdingRegister, RegisterOrder.HighLow);
-        // logger.debug("System serial number value {}", value);
-        // systemSerialNumber = value;
-
-        // Read switch A/B
-        holdingRegister = modbusClient.ReadHoldingRegisters(prmHALLeft, 2);
-        // value = ModbusClient.ConvertRegistersToLong(holdingRegister, RegisterOrder.HighLow);
-        value3 = holdingRegister[0] & 0x0000FFFF;
-        // holdingRegister = modbusClient.ReadHoldingRegisters(prmHALLeft + 1, 1);
-        value4 = holdingRegister[1] & 0x0000FFFF;
-        logger.debug("Switch position A {} {}", value3, value4);
-        holdingRegister = modbusClient.ReadHoldingRegisters(prmHALRight, 2);
-        value5 = holdingRegister[0] & 0x0000FFFF;
-        // holdingRegister = modbusClient.ReadHoldingRegisters(prmHALLeft + 3, 1);
-        value6 = holdingRegister[1] & 0x0000FFFF;
-        logger.debug("Switch position B {} {}", value5, value6);
-
-        modbusClient.Disconnect();
+        // We read the read-only information here that is of interest; it does not change, so it is only read
+        // when connecting. If successful we have valid connection
+        read(readPlans.get(DanthermRefresh.ONCE));
+
+        logger.debug("System serial number {}", systemSerialNumber);
+        switchPosition = SwitchPosition.fromInteger(halLeft, halRight);
+        logger.debug("Switch position {}", switchPosition);
 
         return;
     }
@@ -213,16 +212,14 @@ public class DanthermModbus {
         logger.debug("Writing fan speed {}", value);
 
         try {
-            ModbusClient modbusClient = new ModbusClient(ipAddress.getHostAddress(), TCP_PORT);
-            modbusClient.Connect();
             // TODO Why do we need the +1 offset in order to have the hvc5 behave correctly?
-            modbusClient.WriteMultipleRegisters(prmRomIdxSpeedLevel + 1, holdingRegister);
-            modbusClient.Disconnect();
+            session.writeMultipleRegisters(DanthermRegister.FAN_SPEED.getAddress() + 1, holdingRegister);
 
             logger.debug("Fan speed successfully written");
 
             // This will send update back
-            speedLevelFan = value;
+            speedLevelFan = store(VALUE_FAN_SPEED, speedLevelFan, value);
+            notifyChanged();
 
         } catch (UnknownHostException e) {
             // e.printStackTrace();
@@ -230,7 +227,7 @@ public class DanthermModbus {
         } catch (IOException e) {
             // e.printStackTrace();
             logger.error(e.getMessage());
-        } catch (ModbusException e) {
+        } catch (DanthermModbusException e) {
             // e.printStackTrace();
             logger.error(e.getMessage());
         }
@@ -245,16 +242,14 @@ public class DanthermModbus {
         logger.debug("Writing active unit mode {}", value);
 
         try {
-            ModbusClient modbusClient = new ModbusClient(ipAddress.getHostAddress(), TCP_PORT);
-            modbusClient.Connect();
             // TODO Why do we need the +1 offset in order to have the hvc5 behave correctly?
-            modbusClient.WriteMultipleRegisters(prmRamIdxUnitMode + 1, holdingRegister);
-            modbusClient.Disconnect();
+            session.writeMultipleRegisters(DanthermRegister.ACTIVE_UNITMODE.getAddress() + 1, holdingRegister);
 
             logger.debug("Active unit mode {} successfully written", value);
 
             // This will send update back
-            activeUnitMode = value;
+            activeUnitMode = store(VALUE_ACTIVE_UNITMODE, activeUnitMode, value);
+            notifyChanged();
 
         } catch (UnknownHostException e) {
             // e.printStackTrace();
@@ -262,155 +257,224 @@ public class DanthermModbus {
         } catch (IOException e) {
             // e.printStackTrace();
             logger.error(e.getMessage());
-        } catch (ModbusException e) {
+        } catch (DanthermModbusException e) {
             // e.printStackTrace();
             logger.error(e.getMessage());
         }
     }
 
-    private int convertHCV5IntsToInt(int InHigh, int InLow) {
+    /**
+     * Sets the listener told about the changed values at the end of every poll and write, or null for none. The
+     * values that change until a listener is set are all passed to it after the next poll.
+     */
+    public void setListener(DanthermValueListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the mask of the values that changed since the previous call, bit n for value index n, and
+     * clears it. The first call returns all values.
+     */
+    public int takeChangedValues() {
+        return changedValues.getAndSet(0);
+    }
+
+    /**
+     * Passes the values that changed to the listener, if any.
+     */
+    private void notifyChanged() {
+        DanthermValueListener listener = this.listener;
+        if (listener == null) {
+            return;
+        }
+        int changed = takeChangedValues();
+        if (changed == 0) {
+            return;
+        }
+        try {
+            listener.valuesChanged(this, changed);
+        } catch (RuntimeException e) {
+            logger.warn("Unexpected error while publishing values of HCV5 device at address {}",
+                    ipAddress.getHostAddress(), e);
+        }
+    }
+
+    private void markChanged(int value) {
+        changedValues.getAndAccumulate(1 << value, (current, changed) -> current | changed);
+    }
+
+    // Returns the new value, marking the value as changed when it differs from the old one
+    private int store(int value, int oldValue, int newValue) {
+        if (newValue != oldValue) {
+            markChanged(value);
+        }
+        return newValue;
+    }
+
+    private float store(int value, float oldValue, float newValue) {
+        if (Float.floatToIntBits(newValue) != Float.floatToIntBits(oldValue)) {
+            markChanged(value);
+        }
+        return newValue;
+    }
+
+    static int convertHCV5IntsToInt(int InHigh, int InLow) {
         // Register read in for HCV5 is 16 bit per register; low first (lower address) then high (higher address)
         return ((InLow & 0x0000FFFF) | (InHigh & 0xFFFF0000));
     }
 
-    class PeriodicTask extends TimerTask {
-
-        @Override
-        public void run() {
-            // This function is executed periodically (pollingInterval) and is fetching all information from HCV5.
-            // It opens a TCP connection; queries all information and closes TCP connection again.
-            // Implementation is like this because HCV5 device is closing connections automatically if socket is unused
-            // for
-            // 1 minute.
-
-            try {
-                int[] holdingRegister;
-
-                float newTemperatureOutdoor;
-                float newTemperatureSupply;
-                float newTemperatureExtract;
-                float newTemperatureExhaust;
-
-                int precision = temperaturePrecision;
-                int scale = (int) Math.pow(10, precision);
-
-                ModbusClient modbusClient = new ModbusClient(ipAddress.getHostAddress(), TCP_PORT);
-                modbusClient.Connect();
-
-                // Read out speed level of fans
-                holdingRegister = modbusClient.ReadHoldingRegisters(prmRomIdxSpeedLevel, 2);
-                logger.debug("Fan speed level register values {} and {} read out.", holdingRegister[0],
-                        holdingRegister[1]);
-                speedLevelFan = convertHCV5IntsToInt(holdingRegister[0], holdingRegister[1]);
-                logger.debug("Fan speed level value {}", speedLevelFan);
-
-                // Read out of current unit mode
-                holdingRegister = modbusClient.ReadHoldingRegisters(prmCurrentBLState, 2);
-                logger.debug("Current unit mode register values {} and {} read out.", holdingRegister[0],
-                        holdingRegister[1]);
-                currentUnitMode = convertHCV5IntsToInt(holdingRegister[0], holdingRegister[1]);
-                logger.debug("Fan speed level value {}", speedLevelFan);
-
-                // Read out of active unit mode
-                holdingRegister = modbusClient.ReadHoldingRegisters(prmRamIdxUnitMode, 2);
-                logger.debug("Active unit mode register values {} and {} read out.", holdingRegister[0],
-                        holdingRegister[1]);
-                activeUnitMode = convertHCV5IntsToInt(holdingRegister[0], holdingRegister[1]);
-                logger.debug("Fan speed level value {}", speedLevelFan);
-
-                // Read out fan1 rpm
-                holdingRegister = modbusClient.ReadHoldingRegisters(prmHALTaho1, 2);
-                logger.debug("Fan 1 rpm register values {} and {} read out.", holdingRegister[0], holdingRegister[1]);
-                fan1rpm = convertHCV5IntsToInt(holdingRegister[0], holdingRegister[1]);
-                logger.debug("Fan 1 rpm value {}", fan1rpm);
-
-                // Read out fan2 rpm
-                holdingRegister = modbusClient.ReadHoldingRegisters(prmHALTaho2, 2);
-                logger.debug("Fan 2 rpm register values {} and {} read out.", holdingRegister[0], holdingRegister[1]);
-                fan2rpm = convertHCV5IntsToInt(holdingRegister[0], holdingRegister[1]);
-                logger.debug("Fan 2 rpm value {}", fan2rpm);
-
-                // Read out outdoor temperature
-                holdingRegister = modbusClient.ReadHoldingRegisters(prmRamIdxT1, 2);
-                logger.debug("Outdoor temperature register values {} and {} read out.", holdingRegister[0],
-                        holdingRegister[1]);
-                newTemperatureOutdoor = ModbusClient.ConvertRegistersToFloat(holdingRegister, RegisterOrder.HighLow);
-                logger.debug("New temperature outdoor = {}", newTemperatureOutdoor);
-                logger.debug("Current temperature outdoor = {}", temperatureOutdoor);
-                if (Math.abs(newTemperatureOutdoor - temperatureOutdoor) > temperatureTreshold) {
-                    temperatureOutdoor = (float) (Math.round(newTemperatureOutdoor * scale)) / scale;
+    static float convertHCV5RegistersToFloat(int high, int low) {
+        // Floats of the HCV5 span two registers, the high word first (lower address); no array is needed for them
+        return Float.intBitsToFloat(((high & 0x0000FFFF) << 16) | (low & 0x0000FFFF));
+    }
+
+    void poll() {
+        // This function is executed periodically (pollingInterval) and is fetching all information from HCV5.
+        // It queries the information that is due in as few block reads as planned, on the connection kept open by
+        // the session.
+
+        try {
+            // Every value is read as often as its refresh class asks, so slowly changing values cost less reads
+            read(readPlans.get(DanthermRefresh.slowestDue(pollCount++)));
+        } catch (IOException e) {
+            logger.debug("Polling HCV5 at {} failed: {}", ipAddress.getHostAddress(), e.getMessage());
+        } catch (DanthermModbusException e) {
+            logger.debug("Polling HCV5 at {} failed: {}", ipAddress.getHostAddress(), e.getMessage());
+        } catch (RuntimeException e) {
+            logger.warn("Unexpected error while querying HCV5 device at address {}", ipAddress.getHostAddress(), e);
+        }
+
+        // The values read before a failure are published as well
+        notifyChanged();
+    }
+
+    /**
+     * Reads the blocks of a plan and decodes their values. Adjacent and nearby values are read in one block and
+     * decoded from it. All block reads are sent at once, so their round trips overlap.
+     */
+    private void read(List<DanthermReadBlock> plan) throws IOException, DanthermModbusException {
+        CompletableFuture<?>[] answers = readAnswers;
+        for (int i = 0; i < plan.size(); i++) {
+            DanthermReadBlock block = plan.get(i);
+            answers[i] = session.readHoldingRegisters(block.getStart(), block.getCount(), block.getBuffer());
+        }
+        for (int i = 0; i < plan.size(); i++) {
+            DanthermModbusClient.await(answers[i]);
+            DanthermReadBlock block = plan.get(i);
+            int[] holdingRegister = block.getBuffer();
+            for (DanthermRegister register : block.getRegisters()) {
+                int offset = block.offset(register);
+                logger.debug("{} register values {} and {} read out.", register, holdingRegister[offset],
+                        holdingRegister[offset + 1]);
+                decode(register, holdingRegister[offset], holdingRegister[offset + 1]);
+            }
+        }
+    }
+
+    /**
+     * Converts the two registers of a value and stores it.
+     */
+    private void decode(DanthermRegister register, int high, int low) {
+        if (register.getValue() == VALUE_NONE) {
+            storeInfo(register, high, low);
+        } else if (register.isFloat()) {
+            storeTemperature(register.getValue(), convertHCV5RegistersToFloat(high, low));
+        } else {
+            storeInt(register.getValue(), convertHCV5IntsToInt(high, low));
+        }
+    }
+
+    /**
+     * Stores the information of the unit that is not published to a channel.
+     */
+    private void storeInfo(DanthermRegister register, int high, int low) {
+        // The serial number spans two values of 32 bits, the high word of each first
+        long word = ((high & 0x0000FFFFL) << 16) | (low & 0x0000FFFFL);
+        switch (register) {
+            case SYSTEM_SERIAL_NUMBER_LOW:
+                systemSerialNumber = (systemSerialNumber & 0xFFFFFFFF00000000L) | word;
+                break;
+            case SYSTEM_SERIAL_NUMBER_HIGH:
+                systemSerialNumber = (systemSerialNumber & 0x00000000FFFFFFFFL) | (word << 32);
+                break;
+            case HAL_LEFT:
+                halLeft = convertHCV5IntsToInt(high, low);
+                break;
+            case HAL_RIGHT:
+                halRight = convertHCV5IntsToInt(high, low);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void storeInt(int value, int newValue) {
+        switch (value) {
+            case VALUE_FAN_SPEED:
+                speedLevelFan = store(value, speedLevelFan, newValue);
+                break;
+            case VALUE_CURRENT_UNITMODE:
+                currentUnitMode = store(value, currentUnitMode, newValue);
+                break;
+            case VALUE_ACTIVE_UNITMODE:
+                activeUnitMode = store(value, activeUnitMode, newValue);
+                break;
+            case VALUE_FAN1_RPM:
+                fan1rpm = store(value, fan1rpm, newValue);
+                break;
+            case VALUE_FAN2_RPM:
+                fan2rpm = store(value, fan2rpm, newValue);
+                break;
+            case VALUE_RELATIVE_HUMIDITY:
+                relativeHumidity = store(value, relativeHumidity, newValue);
+                break;
+            case VALUE_RELATIVE_HUMIDITY_SETPOINT:
+                relativeHumiditySetpoint = store(value, relativeHumiditySetpoint, newValue);
+                break;
+            case VALUE_VOC:
+                voc = store(value, voc, newValue);
+                break;
+            case VALUE_CO2:
+                co2 = store(value, co2, newValue);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Stores a temperature rounded to the reported precision, only when it moved more than the threshold.
+     */
+    private void storeTemperature(int value, float newTemperature) {
+        int scale = (int) Math.pow(10, temperaturePrecision);
+        switch (value) {
+            case VALUE_TEMPERATURE_OUTDOOR:
+                if (Math.abs(newTemperature - temperatureOutdoor) > temperatureTreshold) {
+                    temperatureOutdoor = store(value, temperatureOutdoor,
+                            (float) (Math.round(newTemperature * scale)) / scale);
                 }
-                logger.debug("Outdoor temperature value {}", temperatureOutdoor);
-
-                // Read out supply temperature
-                holdingRegister = modbusClient.ReadHoldingRegisters(prmRamIdxT2, 2);
-                logger.debug("Supply temperature register values {} and {} read out.", holdingRegister[0],
-                        holdingRegister[1]);
-                newTemperatureSupply = ModbusClient.ConvertRegistersToFloat(holdingRegister, RegisterOrder.HighLow);
-                if (Math.abs(newTemperatureSupply - temperatureSupply) > temperatureTreshold) {
-                    temperatureSupply = (float) (Math.round(newTemperatureSupply * scale)) / scale;
+                break;
+            case VALUE_TEMPERATURE_SUPPLY:
+                if (Math.abs(newTemperature - temperatureSupply) > temperatureTreshold) {
+                    temperatureSupply = store(value, temperatureSupply,
+                            (float) (Math.round(newTemperature * scale)) / scale);
                 }
-                logger.debug("Supply temperature value {}", temperatureSupply);
-
-                // Read out extract temperature
-                holdingRegister = modbusClient.ReadHoldingRegisters(prmRamIdxT3, 2);
-                logger.debug("Extract temperature register values {} and {} read out.", holdingRegister[0],
-                        holdingRegister[1]);
-                newTemperatureExtract = ModbusClient.ConvertRegistersToFloat(holdingRegister, RegisterOrder.HighLow);
-                if (Math.abs(newTemperatureExtract - temperatureExtract) > temperatureTreshold) {
-                    temperatureExtract = (float) (Math.round(newTemperatureExtract * scale)) / scale;
+                break;
+            case VALUE_TEMPERATURE_EXTRACT:
+                if (Math.abs(newTemperature - temperatureExtract) > temperatureTreshold) {
+                    temperatureExtract = store(value, temperatureExtract,
+                            (float) (Math.round(newTemperature * scale)) / scale);
                 }
-                logger.debug("Extract temperature value {}", temperatureExtract);
-
-                // Read out exhaust temperature
-                holdingRegister = modbusClient.ReadHoldingRegisters(prmRamIdxT4, 2);
-                logger.debug("Exhaust temperature register values {} and {} read out.", holdingRegister[0],
-                        holdingRegister[1]);
-                newTemperatureExhaust = ModbusClient.ConvertRegistersToFloat(holdingRegister, RegisterOrder.HighLow);
-                if (Math.abs(newTemperatureExhaust - temperatureExhaust) > temperatureTreshold) {
-                    temperatureExhaust = (float) (Math.round(newTemperatureExhaust * scale)) / scale;
+                break;
+            case VALUE_TEMPERATURE_EXHAUST:
+                if (Math.abs(newTemperature - temperatureExhaust) > temperatureTreshold) {
+                    temperatureExhaust = store(value, temperatureExhaust,
+                            (float) (Math.round(newTemperature * scale)) / scale);
                 }
-                logger.debug("Exhaust temperature value {}", temperatureExhaust);
-
-                // Read out relative humidity
-                holdingRegister = modbusClient.ReadHoldingRegisters(prmRamIdxRh3Corrected, 2);
-                logger.debug("Relative humidity register values {} and {} read out.", holdingRegister[0],
-                        holdingRegister[1]);
-                relativeHumidity = convertHCV5IntsToInt(holdingRegister[0], holdingRegister[1]);
-                logger.debug("Relative humidity value {}", relativeHumidity);
-
-                // Read out relative humidity setpoint
-                holdingRegister = modbusClient.ReadHoldingRegisters(prmRomIdxRhSetPoint, 2);
-                logger.debug("Relative humidity register setpoint values {} and {} read out.", holdingRegister[0],
-                        holdingRegister[1]);
-                relativeHumiditySetpoint = convertHCV5IntsToInt(holdingRegister[0], holdingRegister[1]);
-                logger.debug("Relative humidity setpint value {}", relativeHumiditySetpoint);
-
-                // Read out voc
-                holdingRegister = modbusClient.ReadHoldingRegisters(prmVOC, 2);
-                logger.debug("VOC register values {} and {} read out.", holdingRegister[0], holdingRegister[1]);
-                voc = convertHCV5IntsToInt(holdingRegister[0], holdingRegister[1]);
-                logger.debug("VOC value {}", voc);
-
-                // Read out co2
-                holdingRegister = modbusClient.ReadHoldingRegisters(prmHACCO2Val, 2);
-                logger.debug("CO2 register values {} and {} read out.", holdingRegister[0], holdingRegister[1]);
-                voc = convertHCV5IntsToInt(holdingRegister[0], holdingRegister[1]);
-                logger.debug("CO2 value {}", co2);
-
-                modbusClient.Disconnect();
-            } catch (IOException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-                logger.debug(e.getMessage());
-            } catch (ModbusException e) {
-
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-            }
-
+                break;
+            default:
+                break;
         }
-
     }
 
 }
@@ -0,0 +1,607 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dantherm.internal;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link DanthermModbusClient} is a non-blocking Modbus TCP client for the HCV5 unit. It reads holding
+ * registers (function 3), writes them (function 16) or does both in one request (function 23).
+ *
+ * Requests are queued and return a {@link CompletableFuture}; the connection is driven by the I/O thread of the
+ * {@link DanthermReactor} shared by all clients, so callers never block on the network. Up to the configured number of
+ * requests are written back to back, and every answer is matched to its request by the transaction identifier of its
+ * header. Reading all blocks of a poll thus costs about one round trip. The requests and answers are encoded and
+ * decoded in buffers that are reused for the life of the client, and reads can decode into arrays of the caller.
+ *
+ * The connection is opened when the first request is queued and kept open. When it fails or an answer does not
+ * come in time, it is closed and the requests in flight are sent once more on a new connection.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public class DanthermModbusClient {
+
+    // Requests written before their answers arrived, unless configured otherwise
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+
+    // Most requests that can be configured to be in flight at once
+    public static final int MAX_IN_FLIGHT = 16;
+
+    public static final int READ_HOLDING_REGISTERS = 3;
+    public static final int WRITE_MULTIPLE_REGISTERS = 16;
+    public static final int READ_WRITE_MULTIPLE_REGISTERS = 23;
+
+    // Most registers a request of each function can read or write
+    public static final int MAX_READ_COUNT = 125;
+    public static final int MAX_WRITE_COUNT = 123;
+    public static final int MAX_READ_WRITE_COUNT = 121;
+
+    // Length of the MBAP header: transaction, protocol, length and unit
+    private static final int HEADER_LENGTH = 7;
+
+    private static final int MAX_PDU_LENGTH = 253;
+
+    // Unit of the HCV5 behind its Modbus TCP interface
+    private static final int UNIT_IDENTIFIER = 1;
+
+    // TCP connect timeout in ms
+    private static final int CONNECT_TIMEOUT = 2000;
+
+    // Time in ms in which a living connection answers a request
+    private static final int ANSWER_TIMEOUT = 2000;
+
+    // Number of times a request is tried before it fails
+    private static final int MAX_ATTEMPTS = 2;
+
+    private final Logger logger = LoggerFactory.getLogger(DanthermModbusClient.class);
+
+    private final String host;
+
+    private final int port;
+
+    private final int maxInFlight;
+
+    private final DanthermReactor reactor;
+
+    // Requests waiting to be sent; filled by any thread, emptied by the I/O thread
+    private final ConcurrentLinkedDeque<Transaction> queued = new ConcurrentLinkedDeque<>();
+
+    private volatile boolean closed;
+
+    private volatile boolean connected;
+
+    // The fields below are only touched by the I/O thread
+
+    @Nullable
+    private SocketChannel channel;
+    @Nullable
+    private SelectionKey key;
+    private boolean connecting;
+
+    // Time in ns at which the pending connect is considered lost
+    private long connectDeadline;
+
+    // Requests written to the connection that still wait for their answer, oldest first
+    private final Deque<Transaction> inFlight = new ArrayDeque<>();
+
+    // Buffers are reused for every exchange; both hold the largest frames of all requests in flight
+    private final ByteBuffer writeBuffer;
+    private final ByteBuffer readBuffer;
+    private boolean writing;
+
+    // Transaction identifier of the next request
+    private int nextId;
+
+    /**
+     * A request and the place its answer goes to.
+     */
+    private static final class Transaction {
+        final int function;
+        final int readAddress;
+        final int readCount;
+        final int writeAddress;
+        final int[] values;
+        final int[] registers;
+        final CompletableFuture<int[]> future = new CompletableFuture<>();
+
+        int id;
+        long deadline;
+        int attempts;
+
+        Transaction(int function, int readAddress, int readCount, int writeAddress, int[] values,
+                int[] registers) {
+            this.function = function;
+            this.readAddress = readAddress;
+            this.readCount = readCount;
+            this.writeAddress = writeAddress;
+            this.values = values;
+            this.registers = registers;
+        }
+
+        int pduLength() {
+            switch (function) {
+                case WRITE_MULTIPLE_REGISTERS:
+                    return 6 + values.length * 2;
+                case READ_WRITE_MULTIPLE_REGISTERS:
+                    return 10 + values.length * 2;
+                default:
+                    return 5;
+            }
+        }
+    }
+
+    /**
+     * Starts a client. It connects when the first request is queued.
+     *
+     * @param maxInFlight number of requests written before their answers arrived, from 1 to
+     *            {@value #MAX_IN_FLIGHT}; 1 for units that answer only one request at a time
+     */
+    public DanthermModbusClient(String host, int port, int maxInFlight) throws IOException {
+        if (maxInFlight < 1 || maxInFlight > MAX_IN_FLIGHT) {
+            throw new IllegalArgumentException("Invalid number of requests in flight " + maxInFlight);
+        }
+        this.host = host;
+        this.port = port;
+        this.maxInFlight = maxInFlight;
+        writeBuffer = ByteBuffer.allocate(maxInFlight * (HEADER_LENGTH + MAX_PDU_LENGTH));
+        readBuffer = ByteBuffer.allocate(maxInFlight * (HEADER_LENGTH + MAX_PDU_LENGTH));
+        reactor = DanthermReactor.acquire(this);
+    }
+
+    /**
+     * Waits for a request to finish, translating its failure into the exception it failed with.
+     */
+    public static <T> T await(CompletableFuture<T> future) throws IOException, DanthermModbusException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof DanthermModbusException) {
+                throw (DanthermModbusException) cause;
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for HCV5 unit");
+        }
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Queues a read of holding registers.
+     *
+     * @param registers array the registers are decoded into, at least count long. As with the Modbus client used
+     *            before, every register is a signed 16 bit value.
+     * @return the future completing with the given array once the answer is decoded
+     */
+    public CompletableFuture<int[]> readHoldingRegisters(int address, int count, int[] registers) {
+        checkCount(count, MAX_READ_COUNT, registers.length);
+        return submit(new Transaction(READ_HOLDING_REGISTERS, address, count, 0, new int[0], registers));
+    }
+
+    /**
+     * Queues a write of holding registers.
+     */
+    public CompletableFuture<int[]> writeMultipleRegisters(int address, int[] values) {
+        checkCount(values.length, MAX_WRITE_COUNT, values.length);
+        return submit(new Transaction(WRITE_MULTIPLE_REGISTERS, 0, 0, address, values, new int[0]));
+    }
+
+    /**
+     * Queues a write of holding registers followed by a read of holding registers, in one request. The unit
+     * writes before it reads, so the read returns the written values.
+     *
+     * @param registers array the registers read are decoded into, at least readCount long
+     * @return the future completing with the given array once the answer is decoded
+     */
+    public CompletableFuture<int[]> readWriteMultipleRegisters(int readAddress, int readCount, int[] registers,
+            int writeAddress, int[] values) {
+        checkCount(readCount, MAX_READ_COUNT, registers.length);
+        checkCount(values.length, MAX_READ_WRITE_COUNT, values.length);
+        return submit(new Transaction(READ_WRITE_MULTIPLE_REGISTERS, readAddress, readCount, writeAddress, values,
+                registers));
+    }
+
+    /**
+     * Closes the connection. Pending and later requests fail.
+     */
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            DanthermReactor.release(this);
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    private static void checkCount(int count, int maxCount, int length) {
+        if (count < 1 || count > maxCount || count > length) {
+            throw new IllegalArgumentException("Invalid number of registers " + count);
+        }
+    }
+
+    private CompletableFuture<int[]> submit(Transaction transaction) {
+        if (closed) {
+            transaction.future.completeExceptionally(new IOException("Modbus client of " + host + " is closed"));
+        } else {
+            queued.add(transaction);
+            reactor.schedule(this);
+            if (closed && queued.remove(transaction)) {
+                // Closed in the meantime, after the I/O thread failed the queued requests
+                transaction.future.completeExceptionally(new IOException("Modbus client of " + host + " is closed"));
+            }
+        }
+        return transaction.future;
+    }
+
+    /**
+     * Writes the queued requests as far as the pipeline allows, or closes the client when it was closed. Called on
+     * the I/O thread.
+     */
+    void process() {
+        if (closed) {
+            failAll();
+            return;
+        }
+        if (connecting || (queued.isEmpty() && !writing)) {
+            return;
+        }
+
+        SelectionKey key = this.key;
+        if (key == null || !key.isValid()) {
+            connect();
+            return;
+        }
+
+        if (!writing) {
+            ByteBuffer buffer = writeBuffer;
+            buffer.clear();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ANSWER_TIMEOUT);
+            Transaction transaction;
+            while (inFlight.size() < maxInFlight && (transaction = queued.peek()) != null
+                    && HEADER_LENGTH + transaction.pduLength() <= buffer.remaining()) {
+                queued.poll();
+                transaction.id = nextId;
+                nextId = (nextId + 1) & 0xFFFF;
+                transaction.deadline = deadline;
+                transaction.attempts++;
+                encode(transaction, buffer);
+                inFlight.add(transaction);
+            }
+            buffer.flip();
+            writing = buffer.hasRemaining();
+        }
+
+        try {
+            write();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void encode(Transaction transaction, ByteBuffer buffer) {
+        int pduLength = transaction.pduLength();
+        buffer.putShort((short) transaction.id).putShort((short) 0).putShort((short) (pduLength + 1))
+                .put((byte) UNIT_IDENTIFIER).put((byte) transaction.function);
+        switch (transaction.function) {
+            case READ_HOLDING_REGISTERS:
+                buffer.putShort((short) transaction.readAddress).putShort((short) transaction.readCount);
+                break;
+            case WRITE_MULTIPLE_REGISTERS:
+                buffer.putShort((short) transaction.writeAddress);
+                putValues(transaction.values, buffer);
+                break;
+            case READ_WRITE_MULTIPLE_REGISTERS:
+                buffer.putShort((short) transaction.readAddress).putShort((short) transaction.readCount)
+                        .putShort((short) transaction.writeAddress);
+                putValues(transaction.values, buffer);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void putValues(int[] values, ByteBuffer buffer) {
+        buffer.putShort((short) values.length).put((byte) (values.length * 2));
+        for (int value : values) {
+            buffer.putShort((short) value);
+        }
+    }
+
+    /**
+     * Handles a ready socket of the client. Called on the I/O thread.
+     */
+    void handle(SelectionKey key) {
+        if (!key.isValid()) {
+            // Closed by a queued close or reconnect handled before the ready keys
+            return;
+        }
+        try {
+            if (key.isConnectable()) {
+                finishConnect();
+                return;
+            }
+            if (key.isWritable()) {
+                write();
+            }
+            if (key.isValid() && key.isReadable()) {
+                read();
+                // The answers free places in the pipeline
+                process();
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void connect() {
+        try {
+            SocketChannel channel = SocketChannel.open();
+            this.channel = channel;
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+            connecting = true;
+            connectDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CONNECT_TIMEOUT);
+            if (channel.connect(new InetSocketAddress(host, port))) {
+                key = channel.register(reactor.getSelector(), 0, this);
+                connected();
+            } else {
+                key = channel.register(reactor.getSelector(), SelectionKey.OP_CONNECT, this);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void finishConnect() throws IOException {
+        SocketChannel channel = this.channel;
+        if (channel != null && channel.finishConnect()) {
+            connected();
+        }
+    }
+
+    private void connected() {
+        logger.debug("Modbus connection to {}:{} opened", host, port);
+
+        connecting = false;
+        connected = true;
+        setInterest(SelectionKey.OP_READ);
+        process();
+    }
+
+    private void write() throws IOException {
+        SocketChannel channel = this.channel;
+        if (channel == null || !writing) {
+            setInterest(SelectionKey.OP_READ);
+            return;
+        }
+
+        channel.write(writeBuffer);
+        if (writeBuffer.hasRemaining()) {
+            setInterest(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } else {
+            writing = false;
+            setInterest(SelectionKey.OP_READ);
+        }
+    }
+
+    private void read() throws IOException {
+        SocketChannel channel = this.channel;
+        if (channel == null) {
+            return;
+        }
+
+        ByteBuffer buffer = readBuffer;
+        if (channel.read(buffer) < 0) {
+            throw new IOException("Modbus connection closed by " + host);
+        }
+
+        // One read can hold the answers to several requests, and the start of the next one
+        buffer.flip();
+        while (buffer.remaining() >= HEADER_LENGTH) {
+            int position = buffer.position();
+            int length = buffer.getShort(position + 4) & 0xFFFF;
+            if (length < 2 || length > MAX_PDU_LENGTH + 1) {
+                throw new IOException("Malformed Modbus answer from " + host + " of length " + length);
+            }
+            if (buffer.remaining() < HEADER_LENGTH - 1 + length) {
+                break;
+            }
+            answered(buffer.getShort(position) & 0xFFFF, position + HEADER_LENGTH, length - 1);
+            buffer.position(position + HEADER_LENGTH - 1 + length);
+        }
+        buffer.compact();
+    }
+
+    /**
+     * Completes the request in flight with the given transaction identifier with the answer at the given
+     * position of the read buffer.
+     */
+    private void answered(int id, int offset, int length) {
+        Transaction transaction = null;
+        for (Iterator<Transaction> i = inFlight.iterator(); i.hasNext();) {
+            Transaction t = i.next();
+            if (t.id == id) {
+                i.remove();
+                transaction = t;
+                break;
+            }
+        }
+        if (transaction == null) {
+            logger.debug("Discarding Modbus answer from {} to unknown transaction {}", host, id);
+            return;
+        }
+
+        // The answer was complete, so the connection is still in sync; at most this request fails
+        ByteBuffer buffer = readBuffer;
+        int function = buffer.get(offset) & 0xFF;
+        if (function == (transaction.function | 0x80) && length == 2) {
+            transaction.future.completeExceptionally(
+                    new DanthermModbusException(transaction.function, buffer.get(offset + 1) & 0xFF));
+            return;
+        }
+        if (function != transaction.function) {
+            reject(transaction, "function " + function);
+            return;
+        }
+
+        if (function == WRITE_MULTIPLE_REGISTERS) {
+            if (length != 5 || (buffer.getShort(offset + 1) & 0xFFFF) != transaction.writeAddress
+                    || (buffer.getShort(offset + 3) & 0xFFFF) != transaction.values.length) {
+                reject(transaction, "write answer");
+                return;
+            }
+        } else {
+            int count = transaction.readCount;
+            if (length != 2 + count * 2 || (buffer.get(offset + 1) & 0xFF) != count * 2) {
+                reject(transaction, "read answer of length " + length);
+                return;
+            }
+            int[] registers = transaction.registers;
+            for (int i = 0; i < count; i++) {
+                registers[i] = buffer.getShort(offset + 2 + i * 2);
+            }
+        }
+        transaction.future.complete(transaction.registers);
+    }
+
+    private void reject(Transaction transaction, String reason) {
+        logger.debug("Rejected Modbus answer from {} to function {}: {}", host, transaction.function, reason);
+        transaction.future.completeExceptionally(new IOException("Unexpected Modbus " + reason + " from " + host));
+    }
+
+    /**
+     * Returns the time in ns until the pending connect or the oldest answer is considered lost, or
+     * {@link Long#MAX_VALUE} when nothing is pending. Called on the I/O thread.
+     */
+    long timeToDeadline(long now) {
+        if (connecting) {
+            return Math.max(0, connectDeadline - now);
+        }
+        Transaction oldest = inFlight.peek();
+        return oldest == null ? Long.MAX_VALUE : Math.max(0, oldest.deadline - now);
+    }
+
+    /**
+     * Fails the pending connect or the connection when an answer did not come in time. Called on the I/O thread.
+     */
+    void checkDeadline(long now) {
+        if (connecting && now - connectDeadline > 0) {
+            fail(new IOException("Timeout connecting to " + host));
+            return;
+        }
+        Transaction oldest = inFlight.peek();
+        if (oldest != null && now - oldest.deadline > 0) {
+            fail(new IOException("Timeout waiting for Modbus answer from " + host));
+        }
+    }
+
+    private void fail(IOException e) {
+        logger.debug("Modbus connection to {} failed: {}", host, e.getMessage());
+
+        disconnect();
+
+        if (!inFlight.isEmpty()) {
+            // Retry on a new connection before anything else is sent, keeping the original order
+            Transaction transaction;
+            while ((transaction = inFlight.pollLast()) != null) {
+                if (transaction.attempts < MAX_ATTEMPTS) {
+                    queued.addFirst(transaction);
+                } else {
+                    transaction.future.completeExceptionally(e);
+                }
+            }
+        } else {
+            // Nothing could be sent; count this as an attempt of the request waiting for the connection
+            Transaction transaction = queued.peek();
+            if (transaction != null && ++transaction.attempts >= MAX_ATTEMPTS) {
+                queued.remove(transaction);
+                transaction.future.completeExceptionally(e);
+            }
+        }
+
+        // Reconnects for the requests that are left
+        reactor.schedule(this);
+    }
+
+    private void failAll() {
+        IOException e = new IOException("Modbus client of " + host + " is closed");
+        Transaction transaction;
+        while ((transaction = inFlight.poll()) != null) {
+            transaction.future.completeExceptionally(e);
+        }
+        while ((transaction = queued.poll()) != null) {
+            transaction.future.completeExceptionally(e);
+        }
+        disconnect();
+    }
+
+    private void setInterest(int ops) {
+        SelectionKey key = this.key;
+        if (key != null && key.isValid()) {
+            key.interestOps(ops);
+        }
+    }
+
+    private void disconnect() {
+        connecting = false;
+        connected = false;
+        writing = false;
+        readBuffer.clear();
+
+        SelectionKey key = this.key;
+        this.key = null;
+        if (key != null) {
+            key.cancel();
+        }
+
+        SocketChannel channel = this.channel;
+        this.channel = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("Error closing Modbus connection to {}: {}", host, e.getMessage());
+            }
+            logger.debug("Modbus connection to {}:{} closed", host, port);
+        }
+    }
+}
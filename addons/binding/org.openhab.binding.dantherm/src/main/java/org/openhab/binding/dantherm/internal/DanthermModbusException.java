@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dantherm.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link DanthermModbusException} is thrown when the HCV5 unit answers a request with a Modbus exception,
+ * e.g. because a register does not exist. The connection stays usable.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public class DanthermModbusException extends Exception {
+
+    private static final long serialVersionUID = 2046286371531436201L;
+
+    // Function of the request that was rejected
+    private final int function;
+
+    // Modbus exception code, e.g. 2 for an illegal data address
+    private final int code;
+
+    public DanthermModbusException(int function, int code) {
+        super("Modbus exception " + code + " on function " + function);
+        this.function = function;
+        this.code = code;
+    }
+
+    public int getFunction() {
+        return function;
+    }
+
+    public int getCode() {
+        return code;
+    }
+}
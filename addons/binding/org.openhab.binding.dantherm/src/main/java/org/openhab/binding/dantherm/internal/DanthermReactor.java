@@ -0,0 +1,183 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dantherm.internal;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link DanthermReactor} runs the single I/O thread that drives the connections of all
+ * {@link DanthermModbusClient}s through one {@link Selector}. The thread sleeps in the selector until a socket is
+ * ready, a request is queued or the earliest deadline of a connection passes. It is started with the first client
+ * and stopped when the last one is closed.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public class DanthermReactor implements Runnable {
+
+    @Nullable
+    private static DanthermReactor instance;
+
+    // Number of clients that are not closed yet
+    private static int referenceCount;
+
+    private final Logger logger = LoggerFactory.getLogger(DanthermReactor.class);
+
+    private final Selector selector;
+
+    private final Thread thread;
+
+    // Clients that have new requests, need to reconnect or need to be closed
+    private final Queue<DanthermModbusClient> pendingClients = new ConcurrentLinkedQueue<>();
+
+    // All clients served by this reactor, checked for expired deadlines
+    private final Set<DanthermModbusClient> clients = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean running = true;
+
+    private DanthermReactor() throws IOException {
+        selector = Selector.open();
+        thread = new Thread(this, "OH-binding-dantherm-io");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Returns the running reactor for a new client, starting it when needed. Every call needs to be balanced by a
+     * call to {@link #release(DanthermModbusClient)}.
+     */
+    static synchronized DanthermReactor acquire(DanthermModbusClient client) throws IOException {
+        DanthermReactor reactor = instance;
+        if (reactor == null) {
+            reactor = new DanthermReactor();
+            reactor.thread.start();
+            instance = reactor;
+        }
+        reactor.clients.add(client);
+        referenceCount++;
+        return reactor;
+    }
+
+    /**
+     * Has the I/O thread close the given client, and stops the thread when it was the last one.
+     */
+    static synchronized void release(DanthermModbusClient client) {
+        DanthermReactor reactor = instance;
+        if (reactor == null) {
+            return;
+        }
+        reactor.schedule(client);
+        referenceCount--;
+        if (referenceCount <= 0) {
+            referenceCount = 0;
+            instance = null;
+            reactor.running = false;
+            reactor.selector.wakeup();
+        }
+    }
+
+    Selector getSelector() {
+        return selector;
+    }
+
+    /**
+     * Asks the I/O thread to look at the given client, e.g. because a request was queued.
+     */
+    void schedule(DanthermModbusClient client) {
+        pendingClients.add(client);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        logger.debug("Dantherm I/O thread started");
+
+        while (running) {
+            try {
+                long timeout = selectTimeout(System.nanoTime());
+                if (timeout > 0) {
+                    selector.select(timeout);
+                } else {
+                    selector.select();
+                }
+
+                DanthermModbusClient client;
+                while ((client = pendingClients.poll()) != null) {
+                    client.process();
+                    if (client.isClosed()) {
+                        clients.remove(client);
+                    }
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    Object attachment = key.attachment();
+                    if (attachment instanceof DanthermModbusClient) {
+                        ((DanthermModbusClient) attachment).handle(key);
+                    }
+                }
+
+                long now = System.nanoTime();
+                for (DanthermModbusClient c : clients) {
+                    c.checkDeadline(now);
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Unexpected error in Dantherm I/O thread: {}", e.getMessage(), e);
+            }
+        }
+
+        for (DanthermModbusClient c : clients) {
+            c.process();
+        }
+        clients.clear();
+
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.debug("Error closing Dantherm selector: {}", e.getMessage());
+        }
+
+        logger.debug("Dantherm I/O thread stopped");
+    }
+
+    /**
+     * Returns the time in ms until the earliest deadline of all clients, at least 1, or 0 when no client waits
+     * for anything.
+     */
+    private long selectTimeout(long now) {
+        long wait = Long.MAX_VALUE;
+        for (DanthermModbusClient client : clients) {
+            wait = Math.min(wait, client.timeToDeadline(now));
+        }
+        if (wait == Long.MAX_VALUE) {
+            return 0;
+        }
+        // Rounded up, so the deadline has passed when the selector returns
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait) + 1);
+    }
+}
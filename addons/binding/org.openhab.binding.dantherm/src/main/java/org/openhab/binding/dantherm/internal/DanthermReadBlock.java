@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dantherm.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link DanthermReadBlock} is one read of contiguous HCV5 holding registers, and the values that are
+ * decoded from it. Registers between the values are read along but not used. The registers are read into the
+ * same buffer every time the block is read.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public final class DanthermReadBlock {
+
+    // Address of the first register read
+    private final int start;
+
+    // Number of registers read
+    private final int count;
+
+    // Values in the block, by increasing address
+    private final DanthermRegister[] registers;
+
+    // Registers of the last read of the block
+    private final int[] buffer;
+
+    public DanthermReadBlock(int start, int count, DanthermRegister[] registers) {
+        this.start = start;
+        this.count = count;
+        this.registers = registers;
+        this.buffer = new int[count];
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public DanthermRegister[] getRegisters() {
+        return registers;
+    }
+
+    public int[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Returns the index of the first register of a value in the registers read for the block.
+     */
+    public int offset(DanthermRegister register) {
+        return register.getAddress() - start;
+    }
+
+    @Override
+    public String toString() {
+        return start + "+" + count;
+    }
+}
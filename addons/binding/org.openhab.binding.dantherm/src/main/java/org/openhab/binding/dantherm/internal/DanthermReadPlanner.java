@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dantherm.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link DanthermReadPlanner} groups the HCV5 registers to poll into as few block reads as possible. Two
+ * values share a block when at most the maximum gap of unused registers lies between them and the block does
+ * not grow beyond the maximum size. Reading a few unused registers along is much cheaper than another round
+ * trip to the unit.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public final class DanthermReadPlanner {
+
+    // Default number of unused registers that may be read between two values
+    public static final int DEFAULT_MAX_GAP = 32;
+
+    // Most registers a single read holding registers request can return
+    public static final int MAX_SIZE = 125;
+
+    private final int maxGap;
+
+    private final int maxSize;
+
+    public DanthermReadPlanner() {
+        this(DEFAULT_MAX_GAP, MAX_SIZE);
+    }
+
+    /**
+     * @param maxGap number of unused registers that may be read between two values, 0 to only join adjacent ones
+     * @param maxSize number of registers a block may hold, from {@link DanthermRegister#LENGTH} to {@value #MAX_SIZE}
+     */
+    public DanthermReadPlanner(int maxGap, int maxSize) {
+        if (maxGap < 0) {
+            throw new IllegalArgumentException("Invalid maximum gap " + maxGap);
+        }
+        if (maxSize < DanthermRegister.LENGTH || maxSize > MAX_SIZE) {
+            throw new IllegalArgumentException("Invalid maximum block size " + maxSize);
+        }
+        this.maxGap = maxGap;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Plans the reads of the given registers.
+     *
+     * @return the blocks to read, by increasing address
+     */
+    public List<DanthermReadBlock> plan(Collection<DanthermRegister> registers) {
+        DanthermRegister[] sorted = registers.toArray(new DanthermRegister[registers.size()]);
+        Arrays.sort(sorted, Comparator.comparingInt(DanthermRegister::getAddress));
+
+        List<DanthermReadBlock> blocks = new ArrayList<>();
+        int first = 0;
+        for (int i = 1; i <= sorted.length; i++) {
+            int start = sorted[first].getAddress();
+            int end = sorted[i - 1].getAddress() + DanthermRegister.LENGTH;
+            if (i < sorted.length) {
+                int address = sorted[i].getAddress();
+                if (address - end <= maxGap && address + DanthermRegister.LENGTH - start <= maxSize) {
+                    continue;
+                }
+            }
+            blocks.add(new DanthermReadBlock(start, end - start, Arrays.copyOfRange(sorted, first, i)));
+            first = i;
+        }
+        return blocks;
+    }
+}
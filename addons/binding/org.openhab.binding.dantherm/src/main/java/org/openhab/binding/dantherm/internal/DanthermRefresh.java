@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dantherm.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link DanthermRefresh} is how often a HCV5 register is read, in polls. The classes are declared from fast
+ * to slow, and the period of every class is a multiple of the periods of the faster ones. A poll in which a class
+ * is due thus reads all faster classes as well.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public enum DanthermRefresh {
+
+    // Read every poll: values that move by the minute, and values that are set from openHAB
+    REALTIME(1),
+    // Read every third poll: slowly moving measurements
+    NORMAL(3),
+    // Read every 30th poll: settings that are rarely changed at the unit
+    SLOW(30),
+    // Read once when connecting: values fixed for a unit
+    ONCE(0);
+
+    private static final DanthermRefresh[] VALUES = values();
+
+    // Number of polls between two reads, 0 when only read when connecting
+    private final int period;
+
+    private DanthermRefresh(int period) {
+        this.period = period;
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    /**
+     * Returns whether registers of this class are read in the given poll, counting from 0 for the first poll.
+     */
+    public boolean isDue(long poll) {
+        return period > 0 && poll % period == 0;
+    }
+
+    /**
+     * Returns the slowest class that is due in the given poll; all faster classes are due as well.
+     */
+    public static DanthermRefresh slowestDue(long poll) {
+        DanthermRefresh slowest = REALTIME;
+        for (DanthermRefresh refresh : VALUES) {
+            if (refresh.isDue(poll)) {
+                slowest = refresh;
+            }
+        }
+        return slowest;
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dantherm.internal;
+
+import static org.openhab.binding.dantherm.internal.DanthermModbus.*;
+import static org.openhab.binding.dantherm.internal.DanthermRefresh.*;
+
+import java.util.EnumSet;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link DanthermRegister} is the map of the HCV5 holding registers that are read: the address of each
+ * value, whether it is a float or a whole number, the index of the value it is stored in and how often it is
+ * read. Every value spans two registers.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public enum DanthermRegister {
+
+    // System serial number, low and high part
+    SYSTEM_SERIAL_NUMBER_LOW(5, false, VALUE_NONE, ONCE),
+    SYSTEM_SERIAL_NUMBER_HIGH(7, false, VALUE_NONE, ONCE),
+    // Switch position A/B (is fan1/fan2 for inlet/exhaust or vice versa)
+    // If left is one => postion A => fan1 is extract and fan 2 is supply
+    // If right is one => position B => fan1 is supply and fan2 is extract
+    HAL_LEFT(83, false, VALUE_NONE, ONCE),
+    HAL_RIGHT(85, false, VALUE_NONE, ONCE),
+    // Fan1 RPM
+    FAN1_RPM(99, false, VALUE_FAN1_RPM, REALTIME),
+    // Fan2 RPM
+    FAN2_RPM(101, false, VALUE_FAN2_RPM, REALTIME),
+    // Outdoor temperature (air going into building before exchange heater)
+    TEMPERATURE_OUTDOOR(131, true, VALUE_TEMPERATURE_OUTDOOR, NORMAL),
+    // Supply temperature (air going into building after exchange heater)
+    TEMPERATURE_SUPPLY(133, true, VALUE_TEMPERATURE_SUPPLY, NORMAL),
+    // Extract temperature (air going outside of building before exchange heater)
+    TEMPERATURE_EXTRACT(135, true, VALUE_TEMPERATURE_EXTRACT, NORMAL),
+    // Exhaust temperature (air going outside of building after exchange heater )
+    TEMPERATURE_EXHAUST(137, true, VALUE_TEMPERATURE_EXHAUST, NORMAL),
+    // Active unit mode (writable)
+    ACTIVE_UNITMODE(167, false, VALUE_ACTIVE_UNITMODE, REALTIME),
+    // Relative humidity (read-only)
+    RELATIVE_HUMIDITY(195, false, VALUE_RELATIVE_HUMIDITY, NORMAL),
+    // Speed level of fans (0 to 4); in manual mode this can be set; in other modes read only
+    FAN_SPEED(323, false, VALUE_FAN_SPEED, REALTIME),
+    // Relative humidity set-point
+    RELATIVE_HUMIDITY_SETPOINT(339, false, VALUE_RELATIVE_HUMIDITY_SETPOINT, SLOW),
+    // VOC (read-only)
+    VOC(429, false, VALUE_VOC, NORMAL),
+    // Current unit mode (read-only)
+    CURRENT_UNITMODE(471, false, VALUE_CURRENT_UNITMODE, REALTIME),
+    // CO2 (read-only)
+    CO2(573, false, VALUE_CO2, NORMAL);
+
+    // Number of registers of every value
+    public static final int LENGTH = 2;
+
+    private final int address;
+
+    private final boolean floatValue;
+
+    private final int value;
+
+    private final DanthermRefresh refresh;
+
+    private DanthermRegister(int address, boolean floatValue, int value, DanthermRefresh refresh) {
+        this.address = address;
+        this.floatValue = floatValue;
+        this.value = value;
+        this.refresh = refresh;
+    }
+
+    /**
+     * Returns the registers read in a poll in which the given class is the slowest one due, or the registers read
+     * when connecting for {@link DanthermRefresh#ONCE}.
+     */
+    public static EnumSet<DanthermRegister> readWith(DanthermRefresh slowest) {
+        EnumSet<DanthermRegister> registers = EnumSet.noneOf(DanthermRegister.class);
+        for (DanthermRegister register : values()) {
+            DanthermRefresh refresh = register.refresh;
+            if (slowest == ONCE ? refresh == ONCE : refresh != ONCE && refresh.compareTo(slowest) <= 0) {
+                registers.add(register);
+            }
+        }
+        return registers;
+    }
+
+    public int getAddress() {
+        return address;
+    }
+
+    /**
+     * Returns whether the registers hold a float, high word first, rather than a whole number.
+     */
+    public boolean isFloat() {
+        return floatValue;
+    }
+
+    /**
+     * Returns the index of the value the registers are stored in, as in {@link DanthermModbus#VALUE_FAN_SPEED}, or
+     * {@link DanthermModbus#VALUE_NONE} for registers that are not published to a channel.
+     */
+    public int getValue() {
+        return value;
+    }
+
+    public DanthermRefresh getRefresh() {
+        return refresh;
+    }
+}
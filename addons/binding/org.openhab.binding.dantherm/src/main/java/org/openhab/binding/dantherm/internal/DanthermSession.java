@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dantherm.internal;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link DanthermSession} keeps one Modbus TCP connection to an HCV5 unit open for all its polls and writes,
+ * so they skip the TCP handshake. The unit closes a connection that is idle for a minute, so a cheap read is
+ * sent when the connection was idle for {@value #KEEP_ALIVE_IDLE} seconds.
+ *
+ * The connection is driven by a {@link DanthermModbusClient}: several reads can be in flight at once, and a
+ * request that fails on the connection, e.g. because the unit closed it, is sent once more on a new one.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public class DanthermSession {
+
+    // Idle time in s after which a keep-alive read is sent, well before the unit closes the connection at 60 s
+    private static final int KEEP_ALIVE_IDLE = 45;
+
+    // Interval in s at which the idle time is checked
+    private static final int KEEP_ALIVE_CHECK = 5;
+
+    private final Logger logger = LoggerFactory.getLogger(DanthermSession.class);
+
+    private final String host;
+
+    private final DanthermModbusClient client;
+
+    // Time in ns of the last request on the connection
+    private volatile long lastUsed;
+
+    // Job sending keep-alive reads
+    private final ScheduledFuture<?> keepAliveJob;
+
+    /**
+     * @param maxInFlight number of requests written before their answers arrived
+     */
+    public DanthermSession(String host, int port, int maxInFlight) throws IOException {
+        this.host = host;
+        this.client = new DanthermModbusClient(host, port, maxInFlight);
+        keepAliveJob = ThreadPoolManager.getScheduledPool(DanthermBindingConstants.THREAD_POOL_NAME)
+                .scheduleWithFixedDelay(this::keepAlive, KEEP_ALIVE_CHECK, KEEP_ALIVE_CHECK, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Reads holding registers and waits for them.
+     */
+    public int[] readHoldingRegisters(int start, int count) throws IOException, DanthermModbusException {
+        return DanthermModbusClient.await(readHoldingRegisters(start, count, new int[count]));
+    }
+
+    /**
+     * Queues a read of holding registers into the given array, without waiting for it. Reads queued one after
+     * the other are pipelined.
+     */
+    public CompletableFuture<int[]> readHoldingRegisters(int start, int count, int[] registers) {
+        lastUsed = System.nanoTime();
+        return client.readHoldingRegisters(start, count, registers);
+    }
+
+    /**
+     * Writes holding registers and waits for the unit to confirm.
+     */
+    public void writeMultipleRegisters(int start, int[] values) throws IOException, DanthermModbusException {
+        lastUsed = System.nanoTime();
+        DanthermModbusClient.await(client.writeMultipleRegisters(start, values));
+    }
+
+    /**
+     * Closes the connection and stops the keep-alive reads. Later requests fail.
+     */
+    public void close() {
+        keepAliveJob.cancel(false);
+        client.close();
+    }
+
+    private void keepAlive() {
+        if (!client.isConnected() || System.nanoTime() - lastUsed < TimeUnit.SECONDS.toNanos(KEEP_ALIVE_IDLE)) {
+            return;
+        }
+
+        try {
+            readHoldingRegisters(DanthermRegister.FAN_SPEED.getAddress(), 1);
+        } catch (IOException | DanthermModbusException e) {
+            logger.debug("Modbus keep-alive to {} failed: {}", host, e.getMessage());
+        } catch (RuntimeException e) {
+            logger.warn("Unexpected error in Modbus keep-alive to {}", host, e);
+        }
+    }
+}
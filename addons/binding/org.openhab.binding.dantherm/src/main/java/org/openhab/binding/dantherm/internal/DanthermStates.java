@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dantherm.internal;
+
+import java.math.BigDecimal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+
+/**
+ * The {@link DanthermStates} turns values of the HCV5 unit into channel states without formatting or
+ * parsing strings. The states of small whole numbers, such as modes, fan speeds and humidities, are
+ * created once.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public final class DanthermStates {
+
+    // State of every whole number from 0 to 100
+    private static final DecimalType[] SMALL_STATES = new DecimalType[101];
+
+    static {
+        for (int value = 0; value < SMALL_STATES.length; value++) {
+            SMALL_STATES[value] = new DecimalType(value);
+        }
+    }
+
+    private DanthermStates() {
+    }
+
+    /**
+     * Returns the state of a whole number.
+     */
+    public static DecimalType decimal(int value) {
+        if (value >= 0 && value < SMALL_STATES.length) {
+            return SMALL_STATES[value];
+        }
+        return new DecimalType(value);
+    }
+
+    /**
+     * Returns the state of a measured value, such as a temperature or a fan rpm, with one decimal.
+     */
+    public static DecimalType decimal(float value) {
+        return new DecimalType(BigDecimal.valueOf(Math.round(value * 10.0), 1));
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dantherm.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link DanthermValueListener} is told about the values of a HCV5 unit that changed, at the end of every
+ * poll or write that changed any.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+@FunctionalInterface
+public interface DanthermValueListener {
+
+    /**
+     * Called on the thread that polled or wrote the values.
+     *
+     * @param danthermModbus the unit holding the new values
+     * @param changed mask of the changed values, bit n for value index n as in
+     *            {@link DanthermModbus#takeChangedValues()}
+     */
+    void valuesChanged(DanthermModbus danthermModbus, int changed);
+}
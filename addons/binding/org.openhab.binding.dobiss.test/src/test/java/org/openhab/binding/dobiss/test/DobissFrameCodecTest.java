@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dobiss.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.Test;
+import org.openhab.binding.dobiss.internal.DobissFrameCodec;
+
+/**
+ * Tests the frames built and the answers read by the {@link DobissFrameCodec}.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public class DobissFrameCodecTest {
+
+    @Test
+    public void statusQueryAddressesTheModule() {
+        byte[] query = DobissFrameCodec.statusQuery(0x42);
+
+        assertEquals(DobissFrameCodec.HEADER_LENGTH, query.length);
+        assertEquals(DobissFrameCodec.FRAME_MARKER, query[0]);
+        assertEquals(1, query[1]);
+        assertEquals(0x42, query[3]);
+        assertEquals(DobissFrameCodec.FRAME_MARKER, query[15]);
+    }
+
+    @Test
+    public void headersTellTheModuleType() {
+        byte[] relay = DobissFrameCodec.relayHeader(3);
+        byte[] dimmer = DobissFrameCodec.dimmerHeader(3);
+
+        assertEquals(DobissFrameCodec.HEADER_LENGTH, relay.length);
+        assertEquals(2, relay[1]);
+        assertEquals(4, relay[2]);
+        assertEquals(3, relay[3]);
+        assertEquals(-1, dimmer[2]);
+        assertEquals(3, dimmer[3]);
+    }
+
+    @Test
+    public void commandsCountOutputsFromZero() {
+        byte[] relay = DobissFrameCodec.relayCommand(5, 12, 1);
+        byte[] dimmer = DobissFrameCodec.dimmerCommand(6, 1, 80);
+
+        assertEquals(DobissFrameCodec.COMMAND_LENGTH, relay.length);
+        assertArrayEquals(new byte[] { 5, 11, 1, -1, -1, 0x64, -1, -1 }, relay);
+        assertArrayEquals(new byte[] { 6, 0, 1, -1, -1, 80, -1, -1 }, dimmer);
+    }
+
+    @Test
+    public void outputsAreReadInPlace() {
+        ByteBuffer answer = statusAnswer(1, 0, 1);
+
+        assertEquals(1, DobissFrameCodec.output(answer, 1));
+        assertEquals(0, DobissFrameCodec.output(answer, 2));
+        assertEquals(1, DobissFrameCodec.output(answer, 3));
+        assertEquals(0, answer.position());
+    }
+
+    @Test
+    public void validOutputsPassTheCheck() throws IOException {
+        DobissFrameCodec.checkOutputs(statusAnswer(100, 0, 55, 1), 4, 100);
+    }
+
+    @Test(expected = IOException.class)
+    public void impossibleOutputIsRejected() throws IOException {
+        DobissFrameCodec.checkOutputs(statusAnswer(0, 2), 2, 1);
+    }
+
+    @Test
+    public void statusAnswerNeedsTheFrameMarker() {
+        ByteBuffer answer = statusAnswer(0);
+        assertTrue(DobissFrameCodec.isValidAnswer(answer));
+
+        answer.put(0, (byte) 0);
+        assertFalse(DobissFrameCodec.isValidAnswer(answer));
+    }
+
+    @Test
+    public void hexShowsTheRemainingBytes() {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[] { 0, -81, 1, 0x7f });
+        buffer.position(1);
+
+        assertEquals("af017f", DobissFrameCodec.toHex(buffer));
+    }
+
+    private static ByteBuffer statusAnswer(int... outputs) {
+        ByteBuffer answer = ByteBuffer.allocate(DobissFrameCodec.STATUS_ANSWER_LENGTH);
+        answer.put(DobissFrameCodec.statusQuery(1));
+        for (int i = 0; i < outputs.length; i++) {
+            answer.put(DobissFrameCodec.STATUS_OFFSET + i, (byte) outputs[i]);
+        }
+        answer.clear();
+        return answer;
+    }
+}
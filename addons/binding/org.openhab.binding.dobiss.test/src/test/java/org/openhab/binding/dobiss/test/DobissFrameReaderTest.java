@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dobiss.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.Test;
+import org.openhab.binding.dobiss.internal.DobissFrameCodec;
+import org.openhab.binding.dobiss.internal.DobissFrameReader;
+
+/**
+ * Tests that the {@link DobissFrameReader} only hands out complete answers.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public class DobissFrameReaderTest {
+
+    private final DobissFrameReader reader = new DobissFrameReader();
+
+    /**
+     * A channel that returns the queued chunks one read at a time, and the end of the stream after them.
+     */
+    private static class ChunkedChannel implements ReadableByteChannel {
+        private final Deque<byte[]> chunks = new ArrayDeque<>();
+
+        ChunkedChannel(byte[] data, int... chunkLengths) {
+            int position = 0;
+            for (int length : chunkLengths) {
+                chunks.add(Arrays.copyOfRange(data, position, position + length));
+                position += length;
+            }
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            byte[] chunk = chunks.poll();
+            if (chunk == null) {
+                return -1;
+            }
+            dst.put(chunk);
+            return chunk.length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void partialReadsAreAccumulated() throws IOException {
+        byte[] answer = statusAnswer();
+        ChunkedChannel channel = new ChunkedChannel(answer, 10, 30, 8);
+        reader.expect(DobissFrameCodec.STATUS_ANSWER_LENGTH, Long.MAX_VALUE);
+
+        assertNull(reader.read(channel));
+        assertNull(reader.read(channel));
+        ByteBuffer complete = reader.read(channel);
+
+        assertNotNull(complete);
+        assertEquals(DobissFrameCodec.STATUS_ANSWER_LENGTH, complete.remaining());
+        assertEquals(1, DobissFrameCodec.output(complete, 2));
+        assertFalse(reader.isExpecting());
+    }
+
+    @Test
+    public void nothingIsReadWhenNoAnswerIsExpected() throws IOException {
+        assertNull(reader.read(new ChunkedChannel(statusAnswer(), DobissFrameCodec.STATUS_ANSWER_LENGTH)));
+    }
+
+    @Test(expected = IOException.class)
+    public void closedConnectionFailsTheAnswer() throws IOException {
+        reader.expect(DobissFrameCodec.STATUS_ANSWER_LENGTH, Long.MAX_VALUE);
+        ChunkedChannel channel = new ChunkedChannel(statusAnswer(), 20);
+
+        assertNull(reader.read(channel));
+        reader.read(channel);
+    }
+
+    @Test(expected = IOException.class)
+    public void malformedAnswerIsRejected() throws IOException {
+        byte[] answer = statusAnswer();
+        answer[0] = 0;
+        reader.expect(DobissFrameCodec.STATUS_ANSWER_LENGTH, Long.MAX_VALUE);
+
+        reader.read(new ChunkedChannel(answer, DobissFrameCodec.STATUS_ANSWER_LENGTH));
+    }
+
+    @Test
+    public void answerExpiresAfterItsDeadline() {
+        reader.expect(DobissFrameCodec.HEADER_ANSWER_LENGTH, 1000);
+
+        assertFalse(reader.isExpired(1000));
+        assertTrue(reader.isExpired(1001));
+
+        reader.reset();
+        assertFalse(reader.isExpired(1001));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void answerLongerThanTheBufferIsRefused() {
+        reader.expect(DobissFrameCodec.MAX_ANSWER_LENGTH + 1, Long.MAX_VALUE);
+    }
+
+    private static byte[] statusAnswer() {
+        byte[] answer = Arrays.copyOf(DobissFrameCodec.statusQuery(1), DobissFrameCodec.STATUS_ANSWER_LENGTH);
+        answer[DobissFrameCodec.STATUS_OFFSET + 1] = 1;
+        return answer;
+    }
+}
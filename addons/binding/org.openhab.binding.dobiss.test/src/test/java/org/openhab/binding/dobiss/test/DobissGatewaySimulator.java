@@ -0,0 +1,367 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dobiss.test;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link DobissGatewaySimulator} is a stand-in for a Dobiss IP interface. It answers the frames sent by
+ * the binding: status queries, and command headers each followed by an 8 byte command. The outputs of
+ * every module are kept in memory, so a command changes what the next status query returns.
+ *
+ * The simulator has knobs to mimic a real installation: a latency before every answer, a single client
+ * at a time, and connections that are dropped every so many frames or on request. It can be used from
+ * tests, or started on its own to benchmark the binding against it:
+ *
+ * <pre>
+ * java -cp ... org.openhab.binding.dobiss.test.DobissGatewaySimulator --port 1001 --latency 20 --single-client
+ * </pre>
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public class DobissGatewaySimulator implements Closeable {
+
+    // TCP port number of a Dobiss IP interface
+    public static final int DEFAULT_PORT = 1001;
+
+    // Number of outputs kept per module; relays have 12, dimmers use the first 4
+    public static final int OUTPUT_COUNT = 12;
+
+    private static final int HEADER_LENGTH = 16;
+    private static final int COMMAND_LENGTH = 8;
+    private static final int HEADER_ANSWER_LENGTH = 32;
+    private static final int COMMAND_ANSWER_LENGTH = 64;
+    private static final int STATUS_ANSWER_LENGTH = 48;
+    private static final int STATUS_OFFSET = 32;
+
+    private static final byte FRAME_MARKER = -81;
+    private static final byte FRAME_STATUS = 1;
+    private static final byte FRAME_COMMAND = 2;
+    private static final byte TYPE_RELAY = 4;
+
+    private final Logger logger = LoggerFactory.getLogger(DobissGatewaySimulator.class);
+
+    private final ServerSocket serverSocket;
+
+    private final Thread acceptThread;
+
+    // Outputs of every module by module address, created when a module is first addressed
+    private final Map<Integer, int[]> modules = new ConcurrentHashMap<>();
+
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+
+    // Delay in ms before every answer
+    private volatile int latency;
+
+    // Whether a second client is refused while one is connected, as a real IP interface does
+    private volatile boolean singleClient;
+
+    // Number of frames after which a connection is dropped without answering; 0 to never drop
+    private volatile int dropEvery;
+
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong connections = new AtomicLong();
+
+    /**
+     * Starts a simulator on the loopback interface.
+     *
+     * @param port TCP port to listen on, or 0 for any free port
+     */
+    public DobissGatewaySimulator(int port) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * Starts a simulator on the given local address, so several simulated gateways can run side by side
+     * on the same port, e.g. on 127.0.0.1 and 127.0.0.2.
+     */
+    public DobissGatewaySimulator(InetAddress address, int port) throws IOException {
+        serverSocket = new ServerSocket(port, 50, address);
+        acceptThread = new Thread(this::accept, "dobiss-simulator-" + getPort());
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public void setLatency(int latency) {
+        this.latency = latency;
+    }
+
+    public void setSingleClient(boolean singleClient) {
+        this.singleClient = singleClient;
+    }
+
+    public void setDropEvery(int dropEvery) {
+        this.dropEvery = dropEvery;
+    }
+
+    /**
+     * Sets the value of one output (starting at 1) of a module: 0 or 1 for a relay, 0 to 100 for a dimmer.
+     */
+    public void setOutput(int moduleAddress, int id, int value) {
+        outputs(moduleAddress)[id - 1] = value;
+    }
+
+    public int getOutput(int moduleAddress, int id) {
+        return outputs(moduleAddress)[id - 1];
+    }
+
+    /**
+     * Returns the number of frames received since the simulator started.
+     */
+    public long getFrameCount() {
+        return frames.get();
+    }
+
+    /**
+     * Returns the number of connections accepted since the simulator started.
+     */
+    public long getConnectionCount() {
+        return connections.get();
+    }
+
+    /**
+     * Closes every client connection, as a gateway that is power cycled or loses its network.
+     */
+    public void dropConnections() {
+        for (Socket client : clients) {
+            closeQuietly(client);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        dropConnections();
+    }
+
+    private int[] outputs(int moduleAddress) {
+        return modules.computeIfAbsent(moduleAddress & 0xFF, address -> new int[OUTPUT_COUNT]);
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            Socket client;
+            try {
+                client = serverSocket.accept();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.debug("Dobiss simulator stopped accepting connections: {}", e.getMessage());
+                }
+                return;
+            }
+
+            if (serverSocket.isClosed()) {
+                // Accepted while the simulator was being closed; a closed gateway does not answer
+                closeQuietly(client);
+                return;
+            }
+
+            if (singleClient && !clients.isEmpty()) {
+                logger.debug("Dobiss simulator refuses {}, a client is already connected",
+                        client.getRemoteSocketAddress());
+                closeQuietly(client);
+                continue;
+            }
+
+            connections.incrementAndGet();
+            clients.add(client);
+            Thread thread = new Thread(() -> serve(client), "dobiss-simulator-client-" + connections.get());
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+
+            byte[] frame = new byte[HEADER_LENGTH];
+            byte[] command = new byte[COMMAND_LENGTH];
+            while (true) {
+                in.readFully(frame);
+                if (drop()) {
+                    return;
+                }
+
+                if (frame[0] != FRAME_MARKER) {
+                    logger.debug("Dobiss simulator closes connection after unknown frame {}", toHex(frame));
+                    return;
+                }
+
+                int moduleAddress = frame[3] & 0xFF;
+                if (frame[1] == FRAME_STATUS) {
+                    answer(out, statusAnswer(frame, moduleAddress));
+                } else if (frame[1] == FRAME_COMMAND) {
+                    answer(out, Arrays.copyOf(frame, HEADER_ANSWER_LENGTH));
+
+                    in.readFully(command);
+                    if (drop()) {
+                        return;
+                    }
+                    applyCommand(frame[2] == TYPE_RELAY, command);
+                    answer(out, new byte[COMMAND_ANSWER_LENGTH]);
+                } else {
+                    logger.debug("Dobiss simulator closes connection after unknown frame {}", toHex(frame));
+                    return;
+                }
+            }
+        } catch (EOFException | SocketException e) {
+            // Client closed the connection, or it was dropped
+        } catch (IOException e) {
+            logger.debug("Dobiss simulator connection failed: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            clients.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * Counts a received frame and tells whether the connection is to be dropped now.
+     */
+    private boolean drop() {
+        long count = frames.incrementAndGet();
+        int dropEvery = this.dropEvery;
+        if (dropEvery > 0 && count % dropEvery == 0) {
+            logger.debug("Dobiss simulator drops connection at frame {}", count);
+            return true;
+        }
+        return false;
+    }
+
+    private byte[] statusAnswer(byte[] query, int moduleAddress) {
+        byte[] answer = new byte[STATUS_ANSWER_LENGTH];
+        System.arraycopy(query, 0, answer, 0, HEADER_LENGTH);
+        int[] outputs = outputs(moduleAddress);
+        for (int i = 0; i < OUTPUT_COUNT; i++) {
+            answer[STATUS_OFFSET + i] = (byte) outputs[i];
+        }
+        Arrays.fill(answer, STATUS_OFFSET + OUTPUT_COUNT, STATUS_ANSWER_LENGTH, (byte) -1);
+        return answer;
+    }
+
+    private void applyCommand(boolean relay, byte[] command) {
+        int id = command[1] + 1;
+        if (id < 1 || id > OUTPUT_COUNT) {
+            logger.debug("Dobiss simulator ignores command for output {}", id);
+            return;
+        }
+        // A relay command carries on/off in byte 2, a dimmer command its percentage in byte 5
+        setOutput(command[0], id, relay ? command[2] : command[5]);
+    }
+
+    private void answer(OutputStream out, byte[] answer) throws IOException, InterruptedException {
+        int latency = this.latency;
+        if (latency > 0) {
+            Thread.sleep(latency);
+        }
+        out.write(answer);
+        out.flush();
+    }
+
+    private static void closeQuietly(@Nullable Socket socket) {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing left to do with it
+            }
+        }
+    }
+
+    private static String toHex(byte[] frame) {
+        StringBuilder hex = new StringBuilder(frame.length * 2);
+        for (byte b : frame) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Runs the simulator until the process is stopped. Options: --address a, --port n, --latency ms,
+     * --single-client, --drop-every frames and --output module.output=value (repeatable).
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        InetAddress address = InetAddress.getLoopbackAddress();
+        int port = DEFAULT_PORT;
+        int latency = 0;
+        boolean singleClient = false;
+        int dropEvery = 0;
+        Map<String, Integer> outputs = new ConcurrentHashMap<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--address":
+                    address = InetAddress.getByName(args[++i]);
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--latency":
+                    latency = Integer.parseInt(args[++i]);
+                    break;
+                case "--single-client":
+                    singleClient = true;
+                    break;
+                case "--drop-every":
+                    dropEvery = Integer.parseInt(args[++i]);
+                    break;
+                case "--output":
+                    String[] output = args[++i].split("=");
+                    outputs.put(output[0], Integer.parseInt(output[1]));
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(1);
+            }
+        }
+
+        DobissGatewaySimulator simulator = new DobissGatewaySimulator(address, port);
+        simulator.setLatency(latency);
+        simulator.setSingleClient(singleClient);
+        simulator.setDropEvery(dropEvery);
+        for (Map.Entry<String, Integer> output : outputs.entrySet()) {
+            String[] key = output.getKey().split("\\.");
+            simulator.setOutput(Integer.parseInt(key[0]), Integer.parseInt(key[1]), output.getValue());
+        }
+
+        System.out.println("Dobiss gateway simulator listening on port " + simulator.getPort());
+        simulator.acceptThread.join();
+    }
+}
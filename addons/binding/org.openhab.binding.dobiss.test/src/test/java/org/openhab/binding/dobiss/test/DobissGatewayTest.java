@@ -0,0 +1,269 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dobiss.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.dobiss.internal.DobissDimmer;
+import org.openhab.binding.dobiss.internal.DobissGateway;
+import org.openhab.binding.dobiss.internal.DobissModule;
+import org.openhab.binding.dobiss.internal.DobissRelay;
+
+/**
+ * Tests the {@link DobissGateway} and its command queue against a {@link DobissGatewaySimulator}.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public class DobissGatewayTest {
+
+    // Time in s a test waits for a request before it fails
+    private static final int TIMEOUT = 10;
+
+    private static final int DIMMER_ADDRESS = 9;
+
+    @Nullable
+    private DobissGatewaySimulator simulator;
+
+    @Nullable
+    private DobissGateway gateway;
+
+    private final List<DobissRelay> relays = new ArrayList<>();
+
+    private final DobissDimmer dimmer = new DobissDimmer();
+
+    @Before
+    public void setUp() throws IOException {
+        DobissGatewaySimulator simulator = new DobissGatewaySimulator(0);
+        this.simulator = simulator;
+        DobissGateway gateway = DobissGateway.acquire("127.0.0.1:" + simulator.getPort());
+        this.gateway = gateway;
+
+        for (int address = 1; address <= 3; address++) {
+            DobissRelay relay = new DobissRelay();
+            relay.setModuleAddress(address);
+            relay.setGateway(gateway);
+            relays.add(relay);
+        }
+        dimmer.setModuleAddress(DIMMER_ADDRESS);
+        dimmer.setGateway(gateway);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        DobissGateway gateway = this.gateway;
+        if (gateway != null) {
+            DobissGateway.release(gateway);
+        }
+        DobissGatewaySimulator simulator = this.simulator;
+        if (simulator != null) {
+            simulator.close();
+        }
+    }
+
+    @Test
+    public void pipelinedQueriesReadEveryModule() throws Exception {
+        DobissGatewaySimulator simulator = simulator();
+        simulator.setLatency(5);
+        for (int address = 1; address <= 3; address++) {
+            simulator.setOutput(address, address, 1);
+        }
+        simulator.setOutput(DIMMER_ADDRESS, 2, 70);
+
+        List<CompletableFuture<Void>> queries = new ArrayList<>();
+        for (DobissModule module : relays) {
+            queries.add(module.queryStatus());
+        }
+        queries.add(dimmer.queryStatus());
+        awaitAll(queries);
+
+        for (int address = 1; address <= 3; address++) {
+            DobissRelay relay = relays.get(address - 1);
+            assertEquals(1 << (address - 1), relay.getState());
+        }
+        assertEquals(70, dimmer.getOutput(2));
+        assertEquals(1, simulator.getConnectionCount());
+    }
+
+    @Test
+    public void ioThreadSleepsWhileThePipelineIsFull() throws Exception {
+        DobissGatewaySimulator simulator = simulator();
+        simulator.setLatency(20);
+        DobissGateway gateway = this.gateway;
+        assertNotNull(gateway);
+
+        // More modules than polls can be in flight at once, so queries wait for the answers in flight
+        List<DobissRelay> modules = new ArrayList<>();
+        for (int address = 1; address <= 6; address++) {
+            DobissRelay relay = new DobissRelay();
+            relay.setModuleAddress(address);
+            relay.setGateway(gateway);
+            modules.add(relay);
+        }
+        awaitAll(queryAll(modules));
+
+        Thread ioThread = null;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("OH-binding-dobiss-io")) {
+                ioThread = thread;
+            }
+        }
+        assertNotNull(ioThread);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long cpuStart = threads.getThreadCpuTime(ioThread.getId());
+        long wallStart = System.nanoTime();
+
+        for (int round = 0; round < 5; round++) {
+            awaitAll(queryAll(modules));
+        }
+
+        long cpu = threads.getThreadCpuTime(ioThread.getId()) - cpuStart;
+        long wall = System.nanoTime() - wallStart;
+        assertTrue("I/O thread used " + cpu / 1000000 + " ms of CPU in " + wall / 1000000 + " ms", cpu < wall / 10);
+    }
+
+    @Test
+    public void commandsBetweenQueriesAreApplied() throws Exception {
+        DobissGatewaySimulator simulator = simulator();
+
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        for (DobissRelay relay : relays) {
+            requests.add(relay.queryStatus());
+            requests.add(relay.sendCommand(12, 1));
+        }
+        requests.add(dimmer.sendCommand(4, 35));
+        awaitAll(requests);
+
+        for (DobissRelay relay : relays) {
+            assertEquals(1, simulator.getOutput(relay.getModuleAddress(), 12));
+            assertEquals(1, relay.getOutput(12));
+        }
+        assertEquals(35, simulator.getOutput(DIMMER_ADDRESS, 4));
+
+        // A query after the commands sees what they changed
+        relays.get(0).queryStatus().get(TIMEOUT, TimeUnit.SECONDS);
+        assertEquals(1 << 11, relays.get(0).getState());
+    }
+
+    @Test
+    public void droppedConnectionsAreReopenedAndRequestsRetried() throws Exception {
+        DobissGatewaySimulator simulator = simulator();
+        simulator.setDropEvery(5);
+
+        for (int round = 0; round < 10; round++) {
+            int onOff = round % 2;
+            List<CompletableFuture<Void>> requests = new ArrayList<>();
+            for (DobissRelay relay : relays) {
+                requests.add(relay.queryStatus());
+            }
+            requests.add(relays.get(1).sendCommand(3, onOff));
+            awaitAll(requests);
+
+            assertEquals(onOff, simulator.getOutput(2, 3));
+        }
+
+        assertTrue(simulator.getConnectionCount() > 1);
+    }
+
+    @Test
+    public void unreachableGatewayFailsTheRequest() throws Exception {
+        simulator().close();
+
+        try {
+            relays.get(0).queryStatus().get(TIMEOUT, TimeUnit.SECONDS);
+            fail("Query of an unreachable gateway succeeded");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void waitingRequestsFailTogetherWhileUnreachable() throws Exception {
+        simulator().close();
+        long start = System.nanoTime();
+
+        // The first round tries to connect, the later ones fall in the delay before the next connect
+        for (int round = 0; round < 3; round++) {
+            List<CompletableFuture<Void>> requests = queryAll(relays);
+            requests.add(dimmer.sendCommand(1, 50));
+            for (CompletableFuture<Void> request : requests) {
+                try {
+                    request.get(TIMEOUT, TimeUnit.SECONDS);
+                    fail("Request to an unreachable gateway succeeded");
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof IOException);
+                }
+            }
+        }
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    public void newerDimmerValueReplacesThePendingOne() throws Exception {
+        DobissGatewaySimulator simulator = simulator();
+        // The first command is still in flight while the others are submitted
+        simulator.setLatency(50);
+
+        List<CompletableFuture<Void>> commands = new ArrayList<>();
+        for (int value = 10; value <= 40; value += 10) {
+            commands.add(dimmer.sendCommand(1, value));
+        }
+        commands.add(dimmer.sendCommand(2, 80));
+        awaitAll(commands);
+
+        assertEquals(40, simulator.getOutput(DIMMER_ADDRESS, 1));
+        assertEquals(40, dimmer.getOutput(1));
+        assertEquals(80, simulator.getOutput(DIMMER_ADDRESS, 2));
+        // Output 1 got the first and the last value, output 2 its only one; every command has two frames
+        assertEquals(6, simulator.getFrameCount());
+    }
+
+    private DobissGatewaySimulator simulator() {
+        DobissGatewaySimulator simulator = this.simulator;
+        if (simulator == null) {
+            throw new IllegalStateException("Simulator not started");
+        }
+        return simulator;
+    }
+
+    private static List<CompletableFuture<Void>> queryAll(List<? extends DobissModule> modules) {
+        List<CompletableFuture<Void>> queries = new ArrayList<>();
+        for (DobissModule module : modules) {
+            queries.add(module.queryStatus());
+        }
+        return queries;
+    }
+
+    private static void awaitAll(List<CompletableFuture<Void>> futures)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        for (CompletableFuture<Void> future : futures) {
+            future.get(TIMEOUT, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dobiss.test;
+
+import static org.junit.Assert.*;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.Test;
+import org.openhab.binding.dobiss.internal.DobissPollSchedule;
+
+/**
+ * Tests how the {@link DobissPollSchedule} speeds up polls after activity and slows them down again.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public class DobissPollScheduleTest {
+
+    private static final long ACTIVE = 100;
+    private static final long IDLE = 1000;
+    private static final long WINDOW = 500;
+
+    private final DobissPollSchedule schedule = new DobissPollSchedule(2, ACTIVE, IDLE, WINDOW);
+
+    @Test
+    public void everyModuleIsDueAtFirst() {
+        assertTrue(schedule.isDue(0, 0));
+        assertTrue(schedule.isDue(1, 0));
+    }
+
+    @Test
+    public void quietModuleIsPolledAtTheIdleInterval() {
+        schedule.polled(0, 0);
+
+        assertFalse(schedule.isDue(0, IDLE - 1));
+        assertTrue(schedule.isDue(0, IDLE));
+    }
+
+    @Test
+    public void activityBringsThePollForward() {
+        schedule.polled(0, 0);
+        schedule.activity(0, 10);
+
+        assertTrue(schedule.isDue(0, 10 + ACTIVE));
+        // The other module keeps its own schedule
+        schedule.polled(1, 0);
+        assertFalse(schedule.isDue(1, 10 + ACTIVE));
+    }
+
+    @Test
+    public void moduleStaysActiveDuringTheWindow() {
+        schedule.activity(0, 0);
+
+        for (long now = 0; now < WINDOW; now += ACTIVE) {
+            assertTrue(schedule.isDue(0, now));
+            schedule.polled(0, now);
+            assertFalse(schedule.isDue(0, now + ACTIVE - 1));
+        }
+    }
+
+    @Test
+    public void intervalDoublesAfterTheWindowUpToIdle() {
+        schedule.activity(0, 0);
+        long now = WINDOW;
+
+        long[] expected = { 2 * ACTIVE, 4 * ACTIVE, 8 * ACTIVE, IDLE, IDLE };
+        for (long interval : expected) {
+            schedule.polled(0, now);
+            assertFalse(schedule.isDue(0, now + interval - 1));
+            assertTrue(schedule.isDue(0, now + interval));
+            now += interval;
+        }
+    }
+
+    @Test
+    public void idleIntervalIsNeverShorterThanTheActiveOne() {
+        DobissPollSchedule slow = new DobissPollSchedule(1, ACTIVE, ACTIVE / 2, WINDOW);
+        slow.polled(0, 0);
+
+        assertFalse(slow.isDue(0, ACTIVE - 1));
+        assertTrue(slow.isDue(0, ACTIVE));
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dobiss.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link DobissAnswerDecoder} stores the content of a complete answer. It runs on the I/O thread and
+ * reads the answer in place, so it must not keep the buffer.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@FunctionalInterface
+@NonNullByDefault
+public interface DobissAnswerDecoder {
+
+    /**
+     * @throws IOException when the content of the answer can not be trusted; nothing may be stored then
+     */
+    void decode(ByteBuffer answer) throws IOException;
+}
@@ -12,8 +12,11 @@
  */
 package org.openhab.binding.dobiss.internal;
 
+import java.util.regex.Pattern;
+
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.smarthome.core.thing.ThingTypeUID;
+import org.eclipse.smarthome.core.thing.type.ChannelTypeUID;
 
 /**
  * The {@link DobissBindingConstants} class defines common constants, which are
@@ -26,45 +29,27 @@ public class DobissBindingConstants {
 
     private static final String BINDING_ID = "dobiss";
 
+    // Name of the thread pool shared by the periodic jobs of all things of the binding. The jobs start at a random
+    // offset, so things initialized together do not run at once, and catch every exception, which would cancel
+    // all further runs of the job.
+    public static final String THREAD_POOL_NAME = BINDING_ID;
+
     // List of all Thing Type UIDs
     public static final ThingTypeUID THING_TYPE_DOMOTICS = new ThingTypeUID(BINDING_ID, "domotics");
 
-    // List of all Channel ids
-    public static final String CHANNEL_RELAY01_ID_1 = "relay01_channel1";
-    public static final String CHANNEL_RELAY01_ID_2 = "relay01_channel2";
-    public static final String CHANNEL_RELAY01_ID_3 = "relay01_channel3";
-    public static final String CHANNEL_RELAY01_ID_4 = "relay01_channel4";
-    public static final String CHANNEL_RELAY01_ID_5 = "relay01_channel5";
-    public static final String CHANNEL_RELAY01_ID_6 = "relay01_channel6";
-    public static final String CHANNEL_RELAY01_ID_7 = "relay01_channel7";
-    public static final String CHANNEL_RELAY01_ID_8 = "relay01_channel8";
-    public static final String CHANNEL_RELAY01_ID_9 = "relay01_channel9";
-    public static final String CHANNEL_RELAY01_ID_10 = "relay01_channel10";
-    public static final String CHANNEL_RELAY01_ID_11 = "relay01_hannel11";
-    public static final String CHANNEL_RELAY01_ID_12 = "relay01_channel12";
+    // List of all Channel type UIDs
+    public static final ChannelTypeUID CHANNEL_TYPE_RELAY = new ChannelTypeUID(BINDING_ID, "relay_channel");
+    public static final ChannelTypeUID CHANNEL_TYPE_DIMMER = new ChannelTypeUID(BINDING_ID, "dimmer_channel");
 
-    public static final String CHANNEL_RELAY02_ID_1 = "relay02_channel1";
-    public static final String CHANNEL_RELAY02_ID_2 = "relay02_channel2";
-    public static final String CHANNEL_RELAY02_ID_3 = "relay02_channel3";
-    public static final String CHANNEL_RELAY02_ID_4 = "relay02_channel4";
-    public static final String CHANNEL_RELAY02_ID_5 = "relay02_channel5";
-    public static final String CHANNEL_RELAY02_ID_6 = "relay02_channel6";
-    public static final String CHANNEL_RELAY02_ID_7 = "relay02_channel7";
-    public static final String CHANNEL_RELAY02_ID_8 = "relay02_channel8";
-    public static final String CHANNEL_RELAY02_ID_9 = "relay02_channel9";
-    public static final String CHANNEL_RELAY02_ID_10 = "relay02_channel10";
-    public static final String CHANNEL_RELAY02_ID_11 = "relay02_hannel11";
-    public static final String CHANNEL_RELAY02_ID_12 = "relay02_channel12";
+    // Module names are the prefix followed by the 2 digit index of the module, e.g. "relay03"
+    public static final String RELAY_PREFIX = "relay";
+    public static final String DIMMER_PREFIX = "dimmer";
 
-    public static final String CHANNEL_DIMMER01_ID_1 = "dimmer01_channel1";
-    public static final String CHANNEL_DIMMER01_ID_2 = "dimmer01_channel2";
-    public static final String CHANNEL_DIMMER01_ID_3 = "dimmer01_channel3";
-    public static final String CHANNEL_DIMMER01_ID_4 = "dimmer01_channel4";
+    // Channel ids of module outputs, e.g. "relay03_channel12": module name and output
+    public static final Pattern MODULE_CHANNEL_PATTERN = Pattern.compile("((?:relay|dimmer)\\d{2,})_channel(\\d+)");
 
-    public static final String CHANNEL_DIMMER02_ID_1 = "dimmer02_channel1";
-    public static final String CHANNEL_DIMMER02_ID_2 = "dimmer02_channel2";
-    public static final String CHANNEL_DIMMER02_ID_3 = "dimmer02_channel3";
-    public static final String CHANNEL_DIMMER02_ID_4 = "dimmer02_channel4";
+    // List of all Channel ids
+    public static final String CHANNEL_SCENE = "scene";
 
     // IP network address of the dobiss module
     public static final String THING_PROPERTY_IP = "ipAddress";
@@ -74,6 +59,11 @@ public class DobissBindingConstants {
     public static final String THING_PROPERTY_DIMMER01_ADDRESS = "addressDimmer01";
     public static final String THING_PROPERTY_DIMMER02_ADDRESS = "addressDimmer02";
 
+    public static final String THING_PROPERTY_RELAY_ADDRESSES = "relayAddresses";
+    public static final String THING_PROPERTY_DIMMER_ADDRESSES = "dimmerAddresses";
+
     // Polling interval for the dobiss module
     public static final String THING_PROPERTY_POLLING_INTERVAL = "pollingInterval";
+    public static final String THING_PROPERTY_ACTIVE_POLLING_INTERVAL = "activePollingInterval";
+    public static final String THING_PROPERTY_ACTIVE_POLLING_WINDOW = "activePollingWindow";
 }
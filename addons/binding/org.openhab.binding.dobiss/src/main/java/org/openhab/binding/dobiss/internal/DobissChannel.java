@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dobiss.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link DobissChannel} describes the channel of one module output: the module, the output and
+ * whether it is a relay or a dimmer output. The descriptors are built once when the handler is
+ * initialized, so commands and state updates need no parsing of the channel id.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public final class DobissChannel {
+
+    private final String channelId;
+
+    private final DobissModule module;
+
+    // Output of the module, starting at 1
+    private final int output;
+
+    private final boolean relay;
+
+    public DobissChannel(String channelId, DobissModule module, int output) {
+        this.channelId = channelId;
+        this.module = module;
+        this.output = output;
+        this.relay = module instanceof DobissRelay;
+    }
+
+    public String getChannelId() {
+        return channelId;
+    }
+
+    public DobissModule getModule() {
+        return module;
+    }
+
+    public int getOutput() {
+        return output;
+    }
+
+    public boolean isRelay() {
+        return relay;
+    }
+
+    /**
+     * Returns the last known value of the output.
+     */
+    public int getValue() {
+        return module.getOutput(output);
+    }
+}
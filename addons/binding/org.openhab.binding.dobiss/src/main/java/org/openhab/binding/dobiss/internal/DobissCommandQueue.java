@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dobiss.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link DobissCommandQueue} is a write-behind queue for the commands of one gateway. Per module
+ * output at most one command is in flight and at most one is pending. A newer command for the same output
+ * replaces the pending one (last write wins), so a burst of values, e.g. from dragging a dimmer slider,
+ * never queues up behind the gateway.
+ *
+ * The futures of replaced commands complete together with the command that replaced them, in the order
+ * in which they were submitted.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public class DobissCommandQueue {
+
+    private final Logger logger = LoggerFactory.getLogger(DobissCommandQueue.class);
+
+    private final DobissGateway gateway;
+
+    // Outputs with a command in flight, keyed by module address and output
+    private final Map<Integer, Slot> slots = new HashMap<>();
+
+    private static class Slot {
+        // Command waiting for the one in flight to finish
+        @Nullable
+        DobissRequest next;
+
+        // Callers waiting for the pending command, including the ones whose command was replaced
+        List<CompletableFuture<Void>> nextWaiters = new ArrayList<>();
+    }
+
+    public DobissCommandQueue(DobissGateway gateway) {
+        this.gateway = gateway;
+    }
+
+    /**
+     * Queues a command for one output of a module. The returned future completes when the command, or a
+     * newer command for the same output that replaced it, was acknowledged by the gateway.
+     */
+    public synchronized CompletableFuture<Void> submit(int moduleAddress, int output, DobissRequest request) {
+        int key = (moduleAddress << 8) | (output & 0xFF);
+        CompletableFuture<Void> result = new CompletableFuture<>();
+
+        Slot slot = slots.get(key);
+        if (slot == null) {
+            slot = new Slot();
+            slot.next = request;
+            slot.nextWaiters.add(result);
+            slots.put(key, slot);
+            send(key, slot);
+        } else {
+            if (slot.next != null) {
+                logger.trace("Replacing pending command for module {} output {}", moduleAddress, output);
+            }
+            slot.next = request;
+            slot.nextWaiters.add(result);
+        }
+
+        return result;
+    }
+
+    private void send(int key, Slot slot) {
+        DobissRequest request = slot.next;
+        if (request == null) {
+            slots.remove(key);
+            return;
+        }
+
+        List<CompletableFuture<Void>> waiters = slot.nextWaiters;
+        slot.next = null;
+        slot.nextWaiters = new ArrayList<>();
+
+        gateway.submit(request).whenComplete((result, e) -> {
+            for (CompletableFuture<Void> waiter : waiters) {
+                if (e != null) {
+                    waiter.completeExceptionally(e);
+                } else {
+                    waiter.complete(null);
+                }
+            }
+            synchronized (this) {
+                send(key, slot);
+            }
+        });
+    }
+}
@@ -21,10 +21,18 @@ public class DobissConfiguration {
 
     public String ipAddress;
 
+    // Comma separated module addresses; when blank the single addresses below are used
+    public String relayAddresses;
+    public String dimmerAddresses;
+
     public int addressRelay01 = -1;
     public int addressRelay02 = -1;
     public int addressDimmer01 = -1;
     public int addressDimmer02 = -1;
 
     public int pollingInterval;
+
+    // Polling interval in ms for a module with recent activity, and how long in seconds activity lasts
+    public int activePollingInterval = 500;
+    public int activePollingWindow = 30;
 }
@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dobiss.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link DobissFrameCodec} knows the layout of the frames exchanged with a Dobiss IP interface: the
+ * 16 byte header (also used as status query), the 8 byte command and the answers to them.
+ *
+ * Frames that only depend on the module address are built once per module; answers are read in place
+ * from the buffer they were received in.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public final class DobissFrameCodec {
+
+    // Length of a header or status query frame
+    public static final int HEADER_LENGTH = 16;
+
+    // Length of a command frame
+    public static final int COMMAND_LENGTH = 8;
+
+    // Length of the answer to a header frame
+    public static final int HEADER_ANSWER_LENGTH = 32;
+
+    // Length of the answer to a command frame
+    public static final int COMMAND_ANSWER_LENGTH = 64;
+
+    // Length of the answer to a status query: header answer followed by one data block
+    public static final int STATUS_ANSWER_LENGTH = 48;
+
+    // Longest answer the gateway sends to a single frame
+    public static final int MAX_ANSWER_LENGTH = COMMAND_ANSWER_LENGTH;
+
+    // Offset of the value of the first output in a status answer
+    public static final int STATUS_OFFSET = 32;
+
+    // First byte of every header and status answer
+    public static final byte FRAME_MARKER = -81;
+
+    // Module type in the header of a relay command
+    private static final byte TYPE_RELAY = 4;
+
+    // Module type in the header of a dimmer command
+    private static final byte TYPE_DIMMER = -1;
+
+    // Speed value of a relay command
+    private static final byte RELAY_SPEED = 0x64;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private DobissFrameCodec() {
+        // Only static methods
+    }
+
+    /**
+     * Builds the frame that queries the status of all outputs of a module.
+     */
+    public static byte[] statusQuery(int moduleAddress) {
+        return new byte[] { -81, 1, -1, (byte) moduleAddress, 0, 0, 0, 1, 0, -1, -1, -1, -1, -1, -1, -81 };
+    }
+
+    /**
+     * Builds the header that precedes a command for a relay module.
+     */
+    public static byte[] relayHeader(int moduleAddress) {
+        return header(TYPE_RELAY, moduleAddress);
+    }
+
+    /**
+     * Builds the header that precedes a command for a dimmer module.
+     */
+    public static byte[] dimmerHeader(int moduleAddress) {
+        return header(TYPE_DIMMER, moduleAddress);
+    }
+
+    private static byte[] header(byte type, int moduleAddress) {
+        return new byte[] { -81, 2, type, (byte) moduleAddress, 0, 0, 8, 1, 8, -1, -1, -1, -1, -1, -1, -81 };
+    }
+
+    /**
+     * Builds the command that switches one output (1 to 12) of a relay module on (1) or off (0).
+     */
+    public static byte[] relayCommand(int moduleAddress, int id, int onOff) {
+        return new byte[] { (byte) moduleAddress, (byte) (id - 1), (byte) onOff, -1, -1, RELAY_SPEED, -1, -1 };
+    }
+
+    /**
+     * Builds the command that sets one output (1 to 4) of a dimmer module to a percentage.
+     */
+    public static byte[] dimmerCommand(int moduleAddress, int id, int dimmerValue) {
+        return new byte[] { (byte) moduleAddress, (byte) (id - 1), 1, -1, -1, (byte) dimmerValue, -1, -1 };
+    }
+
+    /**
+     * Reads the value of one output (starting at 1) from a status answer, without moving its position.
+     */
+    public static int output(ByteBuffer answer, int id) {
+        return answer.get(answer.position() + STATUS_OFFSET + id - 1);
+    }
+
+    /**
+     * Checks the layout of a complete answer: a status answer starts with the echo of its query.
+     */
+    public static boolean isValidAnswer(ByteBuffer answer) {
+        if (answer.remaining() == STATUS_ANSWER_LENGTH) {
+            return answer.get(answer.position()) == FRAME_MARKER;
+        }
+        return true;
+    }
+
+    /**
+     * Checks that the first outputs of a status answer hold values from 0 up to the given maximum.
+     *
+     * @throws IOException when an output holds a value the module can not have
+     */
+    public static void checkOutputs(ByteBuffer answer, int count, int max) throws IOException {
+        for (int id = 1; id <= count; id++) {
+            int value = output(answer, id);
+            if (value < 0 || value > max) {
+                throw new IOException(
+                        "Invalid value " + value + " for output " + id + " in answer " + toHex(answer));
+            }
+        }
+    }
+
+    /**
+     * Formats the remaining bytes of a buffer for logging, without moving its position. Only meant to be
+     * called when the log level is enabled.
+     */
+    public static String toHex(ByteBuffer buffer) {
+        StringBuilder hex = new StringBuilder(buffer.remaining() * 2);
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            int b = buffer.get(i);
+            hex.append(HEX_DIGITS[(b >> 4) & 0x0F]).append(HEX_DIGITS[b & 0x0F]);
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Formats a frame for logging. Only meant to be called when the log level is enabled.
+     */
+    public static String toHex(byte[] frame) {
+        return toHex(ByteBuffer.wrap(frame));
+    }
+}
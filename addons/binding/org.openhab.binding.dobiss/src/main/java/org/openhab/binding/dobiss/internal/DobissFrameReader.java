@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dobiss.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The {@link DobissFrameReader} reads answers of a known length from a Dobiss gateway connection. Partial
+ * reads are accumulated until the whole answer is in; an answer that is not complete before its deadline
+ * or that does not have the expected layout is rejected, so only complete answers reach the decoders.
+ *
+ * The reader reuses one buffer; a returned answer is only valid until the next call to
+ * {@link #expect(int, long)}.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public class DobissFrameReader {
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(DobissFrameCodec.MAX_ANSWER_LENGTH);
+
+    // Length of the answer being read; 0 when no answer is expected
+    private int expected;
+
+    // Time at which the answer is considered lost
+    private long deadline;
+
+    /**
+     * Starts reading an answer of the given length, which has to be complete at the given time.
+     */
+    public void expect(int length, long deadline) {
+        if (length <= 0 || length > buffer.capacity()) {
+            throw new IllegalArgumentException("Unexpected Dobiss answer length " + length);
+        }
+        buffer.clear().limit(length);
+        this.expected = length;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Stops expecting an answer.
+     */
+    public void reset() {
+        expected = 0;
+        deadline = 0;
+    }
+
+    public boolean isExpecting() {
+        return expected != 0;
+    }
+
+    public boolean isExpired(long now) {
+        return expected != 0 && now > deadline;
+    }
+
+    /**
+     * Reads what is available on the channel.
+     *
+     * @return the complete answer, positioned at its first byte, or null when more bytes are needed
+     * @throws IOException when the connection was closed or the answer is malformed; the connection is
+     *             then out of sync and has to be reopened
+     */
+    public @Nullable ByteBuffer read(ReadableByteChannel channel) throws IOException {
+        if (expected == 0) {
+            return null;
+        }
+        if (channel.read(buffer) < 0) {
+            throw new IOException("Connection closed with " + buffer.position() + " of " + expected
+                    + " answer bytes received");
+        }
+        if (buffer.hasRemaining()) {
+            return null;
+        }
+
+        buffer.flip();
+        expected = 0;
+        deadline = 0;
+        if (!DobissFrameCodec.isValidAnswer(buffer)) {
+            throw new IOException("Malformed answer " + DobissFrameCodec.toHex(buffer));
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,593 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dobiss.internal;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link DobissGateway} keeps one long-lived TCP connection to a Dobiss IP interface. All modules
+ * (relays and dimmers) that are reachable through the same ip address share the same gateway.
+ *
+ * Requests are queued and return a {@link CompletableFuture}; the connection itself is driven by the
+ * {@link DobissReactor} I/O thread, so callers never block on the network. Requests with more than one
+ * frame are executed one at a time. Pipelined requests (such as status queries) are written back to back
+ * and their answers are matched in order as they arrive, so polling several modules costs about one
+ * round trip.
+ *
+ * The request queue is the only way to reach the gateway: the requests of all things using the same ip
+ * address are serialized here, while gateways with different ip addresses are served independently.
+ *
+ * Requests are queued in two lanes. Commands (all requests that are not pipelined) always go before the
+ * status queries of the background polls, even when those were queued earlier. Polls are only written a
+ * few at a time, so a command waits at most for the answers to the polls already on the wire, never for
+ * a whole poll cycle.
+ *
+ * When the gateway can not be reached, every request waiting for it fails at once. While it stays unreachable,
+ * the time before the next connect grows, and requests queued before then fail right away.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public class DobissGateway {
+
+    private static final Map<String, DobissGateway> GATEWAYS = new HashMap<>();
+
+    // TCP port number to connect, unless the ip address names another one
+    private static final int PORT_NUMBER = 1001;
+
+    // TCP connect timeout in ms
+    private static final int CONNECT_TIMEOUT = 200;
+
+    // Time in ms in which a living connection answers a frame
+    private static final int ANSWER_TIMEOUT = 1000;
+
+    // Number of times a request is tried before it fails
+    private static final int MAX_ATTEMPTS = 2;
+
+    // Delay in ms before connecting again after a second failed connect in a row; it doubles with every further
+    // failed connect
+    private static final long MIN_RECONNECT_DELAY = 250;
+    private static final long MAX_RECONNECT_DELAY = 30000;
+
+    // Maximum number of pipelined requests written before their answers arrived. One query is answered while
+    // the next is already on the wire; a command never waits for more than these answers.
+    private static final int MAX_PIPELINED = 2;
+
+    private final Logger logger = LoggerFactory.getLogger(DobissGateway.class);
+
+    // Dobiss ip address where the modules can be reached
+    private final String ipAddress;
+
+    private final DobissReactor reactor;
+
+    private final DobissCommandQueue commandQueue = new DobissCommandQueue(this);
+
+    // Number of users (modules of one or more things) of this gateway
+    private int referenceCount;
+
+    // Requests waiting to be sent; filled by any thread, emptied by the I/O thread. Commands go first.
+    private final ConcurrentLinkedDeque<DobissRequest> commands = new ConcurrentLinkedDeque<>();
+    private final ConcurrentLinkedDeque<DobissRequest> polls = new ConcurrentLinkedDeque<>();
+
+    private volatile boolean closed;
+
+    // The fields below are only touched by the I/O thread
+
+    @Nullable
+    private SocketChannel channel;
+    @Nullable
+    private SelectionKey key;
+    private boolean connecting;
+
+    // Requests written to the connection that still wait for their answer, oldest first
+    private final Deque<DobissRequest> inFlight = new ArrayDeque<>();
+    // Frame of the oldest in-flight request that is being answered
+    private int frameIndex;
+    // Buffers are reused for every exchange, so a poll cycle does not allocate any
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(MAX_PIPELINED * DobissFrameCodec.HEADER_LENGTH);
+    private boolean writing;
+    private final DobissFrameReader reader = new DobissFrameReader();
+    private final ByteBuffer discardBuffer = ByteBuffer.allocate(128);
+
+    // Time at which the pending connect is considered lost; 0 when not connecting
+    private long deadline;
+
+    // Delay before the next reconnect, and the time it is due; 0 when the connection did not fail
+    private long reconnectDelay;
+    private long reconnectAt;
+
+    // Address the connection is made to
+    private final InetSocketAddress socketAddress;
+
+    private DobissGateway(String ipAddress, DobissReactor reactor) throws IOException {
+        this.ipAddress = ipAddress;
+        this.reactor = reactor;
+        this.socketAddress = socketAddress(ipAddress);
+    }
+
+    /**
+     * Parses the address of a gateway: an ip address or host name, optionally followed by a port, e.g.
+     * "192.168.1.20" or "127.0.0.1:11001" for a simulated gateway.
+     */
+    private static InetSocketAddress socketAddress(String ipAddress) throws IOException {
+        int colon = ipAddress.lastIndexOf(':');
+        if (colon < 0 || colon != ipAddress.indexOf(':')) {
+            return InetSocketAddress.createUnresolved(ipAddress, PORT_NUMBER);
+        }
+        try {
+            return InetSocketAddress.createUnresolved(ipAddress.substring(0, colon),
+                    Integer.parseInt(ipAddress.substring(colon + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid Dobiss gateway address " + ipAddress);
+        }
+    }
+
+    /**
+     * Returns the gateway for the given ip address, creating it when it is not in use yet.
+     * Every call needs to be balanced by a call to {@link #release(DobissGateway)}.
+     */
+    public static synchronized DobissGateway acquire(String ipAddress) throws IOException {
+        DobissGateway gateway = GATEWAYS.get(ipAddress);
+        if (gateway == null) {
+            DobissReactor reactor = DobissReactor.getInstance();
+            gateway = new DobissGateway(ipAddress, reactor);
+            reactor.register(gateway);
+            GATEWAYS.put(ipAddress, gateway);
+        }
+        gateway.referenceCount++;
+        return gateway;
+    }
+
+    /**
+     * Releases a gateway obtained by {@link #acquire(String)}. The connection is closed when the last
+     * user releases the gateway.
+     */
+    public static synchronized void release(DobissGateway gateway) {
+        gateway.referenceCount--;
+        if (gateway.referenceCount <= 0) {
+            GATEWAYS.remove(gateway.ipAddress);
+            gateway.closed = true;
+            gateway.reactor.schedule(gateway);
+            if (GATEWAYS.isEmpty()) {
+                DobissReactor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Waits for a request to finish, translating its failure into an {@link IOException}.
+     */
+    public static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for Dobiss gateway");
+        }
+    }
+
+    /**
+     * Returns a future that already failed with the given exception.
+     */
+    public static <T> CompletableFuture<T> failed(Throwable t) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(t);
+        return future;
+    }
+
+    public String getIpAddress() {
+        return ipAddress;
+    }
+
+    /**
+     * Queues a request. The returned future completes on the I/O thread once the last frame of the request
+     * is answered and decoded, or fails when the gateway can not be reached.
+     */
+    public CompletableFuture<Void> submit(DobissRequest request) {
+        if (closed) {
+            request.future.completeExceptionally(new IOException("Dobiss gateway " + ipAddress + " is released"));
+        } else {
+            lane(request).add(request);
+            reactor.schedule(this);
+        }
+        return request.future;
+    }
+
+    /**
+     * Queues a command for one output of a module through the write-behind command queue: a newer command
+     * for the same output replaces a command that is still waiting to be sent.
+     */
+    public CompletableFuture<Void> submitCommand(int moduleAddress, int output, DobissRequest request) {
+        return commandQueue.submit(moduleAddress, output, request);
+    }
+
+    private Deque<DobissRequest> lane(DobissRequest request) {
+        return request.pipelined ? polls : commands;
+    }
+
+    /**
+     * Returns the request to send next: the oldest command, or the oldest poll when no command waits.
+     */
+    private @Nullable DobissRequest nextRequest() {
+        DobissRequest request = commands.peek();
+        return request != null ? request : polls.peek();
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Writes the next queued requests when the connection allows it. Called on the I/O thread.
+     */
+    void process() {
+        if (closed) {
+            close();
+            return;
+        }
+        if (connecting || writing || (commands.isEmpty() && polls.isEmpty())) {
+            return;
+        }
+
+        SelectionKey key = this.key;
+        if (key == null || !key.isValid()) {
+            if (reconnectAt == 0) {
+                connect();
+            } else {
+                failWaiting(new IOException("Dobiss gateway " + ipAddress + " is unreachable"));
+            }
+            return;
+        }
+
+        DobissRequest request = nextRequest();
+        if (request == null) {
+            return;
+        }
+
+        DobissRequest last = inFlight.peekLast();
+        if (last != null && (!request.pipelined || !last.pipelined)) {
+            // Wait until the requests in flight are answered
+            return;
+        }
+
+        if (!request.pipelined) {
+            commands.poll();
+            request.attempts++;
+            inFlight.add(request);
+            startFrame(request, 0);
+            return;
+        }
+
+        if (inFlight.size() >= MAX_PIPELINED) {
+            // The pipeline is full; the next answer makes room
+            return;
+        }
+
+        // Write the queued polls at once, as far as the pipeline allows
+        boolean idle = inFlight.isEmpty();
+        ByteBuffer buffer = writeBuffer;
+        buffer.clear();
+        while (commands.isEmpty() && (request = polls.peek()) != null && inFlight.size() < MAX_PIPELINED
+                && request.frames[0].length <= buffer.remaining()) {
+            polls.poll();
+            request.attempts++;
+            inFlight.add(request);
+            buffer.put(request.frames[0]);
+            traceFrame(request.frames[0]);
+        }
+        buffer.flip();
+        writing = true;
+
+        if (idle) {
+            expectAnswer();
+        }
+        setInterest(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+
+    /**
+     * Handles readiness of the connection. Called on the I/O thread.
+     */
+    void handle(SelectionKey key) {
+        if (!key.isValid()) {
+            // The connection was closed earlier in the same select round
+            return;
+        }
+        try {
+            if (key.isConnectable()) {
+                finishConnect();
+                return;
+            }
+            if (key.isWritable()) {
+                write();
+            }
+            if (key.isValid() && key.isReadable()) {
+                read();
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Fails the pending connect or exchange when its deadline passed, and reconnects when the reconnect delay
+     * passed. Called on the I/O thread.
+     */
+    void checkDeadline(long now) {
+        if (reconnectAt != 0 && now >= reconnectAt) {
+            reconnectAt = 0;
+            process();
+            return;
+        }
+        if ((deadline != 0 && now > deadline) || reader.isExpired(now)) {
+            fail(new IOException("Timeout " + (connecting ? "connecting to" : "waiting for") + " Dobiss gateway "
+                    + ipAddress));
+        }
+    }
+
+    /**
+     * Closes the connection and fails every request that is still pending. Called on the I/O thread.
+     */
+    void close() {
+        IOException e = new IOException("Dobiss gateway " + ipAddress + " is released");
+        DobissRequest request;
+        while ((request = inFlight.poll()) != null) {
+            request.future.completeExceptionally(e);
+        }
+        failWaiting(e);
+        disconnect();
+    }
+
+    private void connect() {
+        try {
+            SocketChannel channel = SocketChannel.open();
+            this.channel = channel;
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+
+            connecting = true;
+            deadline = System.currentTimeMillis() + CONNECT_TIMEOUT;
+            // Resolved on every connect, so a host name follows changes of its address
+            InetSocketAddress address = new InetSocketAddress(socketAddress.getHostString(), socketAddress.getPort());
+            if (channel.connect(address)) {
+                key = channel.register(reactor.getSelector(), 0, this);
+                connected();
+            } else {
+                key = channel.register(reactor.getSelector(), SelectionKey.OP_CONNECT, this);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void finishConnect() throws IOException {
+        SocketChannel channel = this.channel;
+        if (channel != null && channel.finishConnect()) {
+            connected();
+        }
+    }
+
+    private void connected() {
+        logger.debug("Connected to Dobiss gateway {}", ipAddress);
+
+        connecting = false;
+        deadline = 0;
+        setInterest(SelectionKey.OP_READ);
+        process();
+    }
+
+    private void startFrame(DobissRequest request, int index) {
+        frameIndex = index;
+        writeBuffer.clear();
+        writeBuffer.put(request.frames[index]).flip();
+        writing = true;
+        reader.expect(request.answerLengths[index], System.currentTimeMillis() + ANSWER_TIMEOUT);
+        traceFrame(request.frames[index]);
+        setInterest(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+
+    /**
+     * Prepares for the answer to the first frame of the oldest request in flight.
+     */
+    private void expectAnswer() {
+        DobissRequest request = inFlight.peek();
+        frameIndex = 0;
+        if (request == null) {
+            reader.reset();
+        } else {
+            reader.expect(request.answerLengths[0], System.currentTimeMillis() + ANSWER_TIMEOUT);
+        }
+    }
+
+    private void write() throws IOException {
+        SocketChannel channel = this.channel;
+        if (channel == null || !writing) {
+            setInterest(SelectionKey.OP_READ);
+            return;
+        }
+
+        channel.write(writeBuffer);
+        if (!writeBuffer.hasRemaining()) {
+            writing = false;
+            setInterest(SelectionKey.OP_READ);
+            // Pipelined requests queued in the meantime can follow right away
+            process();
+        }
+    }
+
+    private void read() throws IOException {
+        SocketChannel channel = this.channel;
+        if (channel == null) {
+            return;
+        }
+
+        if (inFlight.isEmpty()) {
+            // Nothing asked; whatever arrives can not belong to an exchange of ours
+            discardBuffer.clear();
+            int count = channel.read(discardBuffer);
+            if (count < 0) {
+                logger.debug("Dobiss gateway {} closed the connection", ipAddress);
+                disconnect();
+            } else if (count > 0) {
+                logger.debug("Discarding {} unexpected bytes from Dobiss gateway {}", count, ipAddress);
+            }
+            return;
+        }
+
+        // One read can hold the answers to several pipelined requests
+        ByteBuffer answer;
+        while ((answer = reader.read(channel)) != null) {
+            answered(answer);
+        }
+    }
+
+    private void answered(ByteBuffer answer) {
+        DobissRequest request = inFlight.peek();
+        if (request == null) {
+            reader.reset();
+            return;
+        }
+        if (logger.isTraceEnabled()) {
+            logger.trace("Dobiss gateway {} answer {}", ipAddress, DobissFrameCodec.toHex(answer));
+        }
+
+        if (frameIndex + 1 < request.frames.length) {
+            startFrame(request, frameIndex + 1);
+            return;
+        }
+
+        inFlight.poll();
+        // The gateway is reachable again
+        reconnectDelay = 0;
+        DobissAnswerDecoder decoder = request.decoder;
+        if (decoder != null) {
+            try {
+                decoder.decode(answer);
+            } catch (IOException | RuntimeException e) {
+                // The answer was complete, so the connection is still in sync; only this request fails
+                logger.debug("Rejected answer from Dobiss gateway {}: {}", ipAddress, e.getMessage());
+                expectAnswer();
+                request.future.completeExceptionally(e);
+                process();
+                return;
+            }
+        }
+        expectAnswer();
+        request.future.complete(null);
+        process();
+    }
+
+    private void traceFrame(byte[] frame) {
+        if (logger.isTraceEnabled()) {
+            logger.trace("Dobiss gateway {} send {}", ipAddress, DobissFrameCodec.toHex(frame));
+        }
+    }
+
+    private void fail(IOException e) {
+        logger.debug("Connection to Dobiss gateway {} failed: {}", ipAddress, e.getMessage());
+
+        disconnect();
+
+        if (!inFlight.isEmpty()) {
+            // The connection was lost; retry on a fresh one before anything else is sent, keeping the original
+            // order
+            DobissRequest request;
+            while ((request = inFlight.pollLast()) != null) {
+                if (request.attempts < MAX_ATTEMPTS) {
+                    lane(request).addFirst(request);
+                } else {
+                    request.future.completeExceptionally(e);
+                }
+            }
+            reactor.schedule(this);
+            return;
+        }
+
+        // The gateway could not be reached, so nothing waiting for it can be sent. The first failed connect lets
+        // the next request connect right away; while the gateway stays unreachable the delay grows.
+        failWaiting(e);
+        if (reconnectDelay > 0) {
+            reconnectAt = System.currentTimeMillis() + reconnectDelay;
+            logger.debug("Reconnecting to Dobiss gateway {} in {} ms", ipAddress, reconnectDelay);
+        }
+        reconnectDelay = Math.min(Math.max(reconnectDelay * 2, MIN_RECONNECT_DELAY), MAX_RECONNECT_DELAY);
+    }
+
+    /**
+     * Fails the queued requests that were not written yet.
+     */
+    private void failWaiting(IOException e) {
+        DobissRequest request;
+        while ((request = commands.poll()) != null) {
+            request.future.completeExceptionally(e);
+        }
+        while ((request = polls.poll()) != null) {
+            request.future.completeExceptionally(e);
+        }
+    }
+
+    private void setInterest(int ops) {
+        SelectionKey key = this.key;
+        if (key != null && key.isValid()) {
+            key.interestOps(ops);
+        }
+    }
+
+    private void disconnect() {
+        connecting = false;
+        deadline = 0;
+        writing = false;
+        reader.reset();
+
+        SelectionKey key = this.key;
+        this.key = null;
+        if (key != null) {
+            key.cancel();
+        }
+
+        SocketChannel channel = this.channel;
+        this.channel = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("Error closing connection to Dobiss gateway {}: {}", ipAddress, e.getMessage());
+            }
+            logger.debug("Disconnected from Dobiss gateway {}", ipAddress);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dobiss.internal;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.dobiss.service.DobissGatewayService;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link DobissGatewayServiceImpl} implements the {@link DobissGatewayService} on top of the
+ * {@link DobissGateway} connections of this bundle, so things of other bundles share the same connection
+ * and request queue as the things of this binding.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+@Component(service = DobissGatewayService.class)
+public class DobissGatewayServiceImpl implements DobissGatewayService {
+
+    private final Logger logger = LoggerFactory.getLogger(DobissGatewayServiceImpl.class);
+
+    // Gateways in use, with the number of users of each
+    private final Map<String, DobissGateway> gateways = new HashMap<>();
+    private final Map<String, Integer> users = new HashMap<>();
+
+    // Modules that were queried or commanded, keyed by ip address and module address
+    private final Map<String, DobissRelay> relays = new HashMap<>();
+    private final Map<String, DobissDimmer> dimmers = new HashMap<>();
+
+    @Override
+    public synchronized void acquire(String ipAddress) throws IOException {
+        if (!gateways.containsKey(ipAddress)) {
+            gateways.put(ipAddress, DobissGateway.acquire(ipAddress));
+        }
+        users.merge(ipAddress, 1, Integer::sum);
+    }
+
+    @Override
+    public synchronized void release(String ipAddress) {
+        Integer count = users.get(ipAddress);
+        if (count == null) {
+            logger.debug("Dobiss gateway {} released without being acquired", ipAddress);
+            return;
+        }
+        if (count > 1) {
+            users.put(ipAddress, count - 1);
+            return;
+        }
+
+        users.remove(ipAddress);
+        DobissGateway gateway = gateways.remove(ipAddress);
+        if (gateway != null) {
+            relays.values().removeIf(relay -> relay.getIpAddress().equals(ipAddress));
+            dimmers.values().removeIf(dimmer -> dimmer.getIpAddress().equals(ipAddress));
+            DobissGateway.release(gateway);
+        }
+    }
+
+    @Deactivate
+    protected synchronized void deactivate() {
+        for (DobissGateway gateway : gateways.values()) {
+            DobissGateway.release(gateway);
+        }
+        gateways.clear();
+        users.clear();
+        relays.clear();
+        dimmers.clear();
+    }
+
+    @Override
+    public CompletableFuture<int[]> queryRelay(String ipAddress, int moduleAddress) {
+        DobissRelay relay = getRelay(ipAddress, moduleAddress);
+        if (relay == null) {
+            return DobissGateway.failed(notAcquired(ipAddress));
+        }
+        return relay.queryStatus().thenApply(result -> relay.getOutputs());
+    }
+
+    @Override
+    public CompletableFuture<Void> sendRelayCommand(String ipAddress, int moduleAddress, int id, int onOff) {
+        DobissRelay relay = getRelay(ipAddress, moduleAddress);
+        if (relay == null) {
+            return DobissGateway.failed(notAcquired(ipAddress));
+        }
+        return relay.sendCommand(id, onOff);
+    }
+
+    @Override
+    public CompletableFuture<int[]> queryDimmer(String ipAddress, int moduleAddress) {
+        DobissDimmer dimmer = getDimmer(ipAddress, moduleAddress);
+        if (dimmer == null) {
+            return DobissGateway.failed(notAcquired(ipAddress));
+        }
+        return dimmer.queryStatus().thenApply(result -> dimmer.getOutputs());
+    }
+
+    @Override
+    public CompletableFuture<Void> sendDimmerCommand(String ipAddress, int moduleAddress, int id, int dimmerValue) {
+        DobissDimmer dimmer = getDimmer(ipAddress, moduleAddress);
+        if (dimmer == null) {
+            return DobissGateway.failed(notAcquired(ipAddress));
+        }
+        return dimmer.sendCommand(id, dimmerValue);
+    }
+
+    private synchronized @Nullable DobissRelay getRelay(String ipAddress, int moduleAddress) {
+        DobissGateway gateway = gateways.get(ipAddress);
+        if (gateway == null) {
+            return null;
+        }
+        return relays.computeIfAbsent(ipAddress + "/" + moduleAddress, key -> {
+            DobissRelay relay = new DobissRelay();
+            relay.setGateway(gateway);
+            relay.setModuleAddress(moduleAddress);
+            return relay;
+        });
+    }
+
+    private synchronized @Nullable DobissDimmer getDimmer(String ipAddress, int moduleAddress) {
+        DobissGateway gateway = gateways.get(ipAddress);
+        if (gateway == null) {
+            return null;
+        }
+        return dimmers.computeIfAbsent(ipAddress + "/" + moduleAddress, key -> {
+            DobissDimmer dimmer = new DobissDimmer();
+            dimmer.setGateway(gateway);
+            dimmer.setModuleAddress(moduleAddress);
+            return dimmer;
+        });
+    }
+
+    private IOException notAcquired(String ipAddress) {
+        return new IOException("Dobiss gateway " + ipAddress + " is not acquired");
+    }
+}
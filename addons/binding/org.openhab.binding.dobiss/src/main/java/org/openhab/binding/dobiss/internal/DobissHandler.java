@@ -15,24 +15,35 @@ package org.openhab.binding.dobiss.internal;
 import static org.openhab.binding.dobiss.internal.DobissBindingConstants.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.Semaphore;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
-import org.eclipse.smarthome.core.library.types.DecimalType;
-import org.eclipse.smarthome.core.library.types.PercentType;
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
+import org.eclipse.smarthome.core.library.types.OnOffType;
 import org.eclipse.smarthome.core.thing.Channel;
 import org.eclipse.smarthome.core.thing.ChannelUID;
 import org.eclipse.smarthome.core.thing.Thing;
 import org.eclipse.smarthome.core.thing.ThingStatus;
 import org.eclipse.smarthome.core.thing.ThingStatusDetail;
 import org.eclipse.smarthome.core.thing.binding.BaseThingHandler;
+import org.eclipse.smarthome.core.thing.binding.builder.ChannelBuilder;
+import org.eclipse.smarthome.core.thing.binding.builder.ThingBuilder;
 import org.eclipse.smarthome.core.types.Command;
 import org.eclipse.smarthome.core.types.RefreshType;
+import org.openhab.binding.dobiss.service.DobissStates;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,6 +51,10 @@ import org.slf4j.LoggerFactory;
  * The {@link DobissHandler} is responsible for handling commands, which are
  * sent to one of the channels.
  *
+ * The thing has one channel per output of every configured relay and dimmer module, named after the
+ * module and the output, e.g. "relay03_channel12". The channels are generated when the handler is
+ * initialized, for exactly the configured modules.
+ *
  * @author Bjorn Aelvoet - Initial contribution
  */
 @NonNullByDefault
@@ -50,60 +65,46 @@ public class DobissHandler extends BaseThingHandler {
     @Nullable
     private DobissConfiguration config;
 
-    // Timer for pushing the updates of the dobiss modules to the UI
+    // Job polling the dobiss modules and pushing their updates to the UI
     @Nullable
-    Timer timer;
+    private ScheduledFuture<?> pollingJob;
 
     // Polling interval in seconds
     private int pollingInterval;
-    // Delay of the internal timer in ms
+    // Delay of the first poll in ms
     private int pollingDelay = 500;
 
-    // Caching variables
-    private int dobissRelay01Id01 = -1;
-    private int dobissRelay01Id02 = -1;
-    private int dobissRelay01Id03 = -1;
-    private int dobissRelay01Id04 = -1;
-    private int dobissRelay01Id05 = -1;
-    private int dobissRelay01Id06 = -1;
-    private int dobissRelay01Id07 = -1;
-    private int dobissRelay01Id08 = -1;
-    private int dobissRelay01Id09 = -1;
-    private int dobissRelay01Id10 = -1;
-    private int dobissRelay01Id11 = -1;
-    private int dobissRelay01Id12 = -1;
-    private int dobissRelay02Id01 = -1;
-    private int dobissRelay02Id02 = -1;
-    private int dobissRelay02Id03 = -1;
-    private int dobissRelay02Id04 = -1;
-    private int dobissRelay02Id05 = -1;
-    private int dobissRelay02Id06 = -1;
-    private int dobissRelay02Id07 = -1;
-    private int dobissRelay02Id08 = -1;
-    private int dobissRelay02Id09 = -1;
-    private int dobissRelay02Id10 = -1;
-    private int dobissRelay02Id11 = -1;
-    private int dobissRelay02Id12 = -1;
-    private int dobissDimmer01Id01 = -1;
-    private int dobissDimmer01Id02 = -1;
-    private int dobissDimmer01Id03 = -1;
-    private int dobissDimmer01Id04 = -1;
-    private int dobissDimmer02Id01 = -1;
-    private int dobissDimmer02Id02 = -1;
-    private int dobissDimmer02Id03 = -1;
-    private int dobissDimmer02Id04 = -1;
-
-    private DobissRelay dobissRelay01 = new DobissRelay();
-    private DobissRelay dobissRelay02 = new DobissRelay();
-
-    private DobissDimmer dobissDimmer01 = new DobissDimmer();
-    private DobissDimmer dobissDimmer02 = new DobissDimmer();
-
-    // Multiple modules can be reached with same ip address, but Dobiss tcp server only expects on client.
-    // So we need to make sure that we are communicating one at a time.
-    // Semaphore will be locked when tcp socket communication is already happening (e.g. in another thread because of
-    // timer).
-    private static Semaphore mutex_tcp_communication = new Semaphore(1, true);
+    // When each module is polled next; polls are fast after activity and slow when idle
+    private DobissPollSchedule pollSchedule = new DobissPollSchedule(0, 500, 500, 0);
+
+    // Whether all values were published once; the first publication is not activity
+    private boolean initialValuesPublished;
+
+    // Configured relay and dimmer modules, relays first, each in the order of its address list
+    private List<DobissModule> modules = new ArrayList<>();
+
+    // Configured modules by name, e.g. "relay01", as used in channel ids and scenes
+    private Map<String, DobissModule> modulesByName = new HashMap<>();
+
+    // Name of every configured module, at the same index as the module
+    private String[] moduleNames = new String[0];
+
+    // Output channels of all configured modules by channel id, built once when the handler is initialized
+    private Map<String, DobissChannel> channels = Collections.emptyMap();
+
+    // Output channels of every configured module, at the same index as the module, output 1 first
+    private DobissChannel[][] moduleChannels = new DobissChannel[0][];
+
+    // Ids of the linked output channels, kept up to date as channels are linked and unlinked
+    private final Set<String> linkedChannels = ConcurrentHashMap.newKeySet();
+
+    // Shared connection to the Dobiss IP interface used by all modules of this thing
+    @Nullable
+    private volatile DobissGateway gateway;
+
+    // Poll cycle whose answers are not all in yet; no new cycle starts before it completes
+    @Nullable
+    private CompletableFuture<Void> pendingPoll;
 
     public DobissHandler(Thing thing) {
         super(thing);
@@ -113,72 +114,19 @@ public class DobissHandler extends BaseThingHandler {
     public void handleCommand(ChannelUID channelUID, Command command) {
         logger.debug("Handle command for {} on channel {}: {}", thing.getUID(), channelUID, command);
 
-        if (channelUID.getId().equals(CHANNEL_RELAY01_ID_1)) {
-            handleDobissRelay(command, 1, 1);
-        } else if (channelUID.getId().equals(CHANNEL_RELAY01_ID_2)) {
-            handleDobissRelay(command, 1, 2);
-        } else if (channelUID.getId().equals(CHANNEL_RELAY01_ID_3)) {
-            handleDobissRelay(command, 1, 3);
-        } else if (channelUID.getId().equals(CHANNEL_RELAY01_ID_4)) {
-            handleDobissRelay(command, 1, 4);
-        } else if (channelUID.getId().equals(CHANNEL_RELAY01_ID_5)) {
-            handleDobissRelay(command, 1, 5);
-        } else if (channelUID.getId().equals(CHANNEL_RELAY01_ID_6)) {
-            handleDobissRelay(command, 1, 6);
-        } else if (channelUID.getId().equals(CHANNEL_RELAY01_ID_7)) {
-            handleDobissRelay(command, 1, 7);
-        } else if (channelUID.getId().equals(CHANNEL_RELAY01_ID_8)) {
-            handleDobissRelay(command, 1, 8);
-        } else if (channelUID.getId().equals(CHANNEL_RELAY01_ID_9)) {
-            handleDobissRelay(command, 1, 9);
-        } else if (channelUID.getId().equals(CHANNEL_RELAY01_ID_10)) {
-            handleDobissRelay(command, 1, 10);
-        } else if (channelUID.getId().equals(CHANNEL_RELAY01_ID_11)) {
-            handleDobissRelay(command, 1, 11);
-        } else if (channelUID.getId().equals(CHANNEL_RELAY01_ID_12)) {
-            handleDobissRelay(command, 1, 12);
-        } else if (channelUID.getId().equals(CHANNEL_RELAY02_ID_1)) {
-            handleDobissRelay(command, 2, 1);
-        } else if (channelUID.getId().equals(CHANNEL_RELAY02_ID_2)) {
-            handleDobissRelay(command, 2, 2);
-        } else if (channelUID.getId().equals(CHANNEL_RELAY02_ID_3)) {
-            handleDobissRelay(command, 2, 3);
-        } else if (channelUID.getId().equals(CHANNEL_RELAY02_ID_4)) {
-            handleDobissRelay(command, 2, 4);
-        } else if (channelUID.getId().equals(CHANNEL_RELAY02_ID_5)) {
-            handleDobissRelay(command, 2, 5);
-        } else if (channelUID.getId().equals(CHANNEL_RELAY02_ID_6)) {
-            handleDobissRelay(command, 2, 6);
-        } else if (channelUID.getId().equals(CHANNEL_RELAY02_ID_7)) {
-            handleDobissRelay(command, 2, 7);
-        } else if (channelUID.getId().equals(CHANNEL_RELAY02_ID_8)) {
-            handleDobissRelay(command, 2, 8);
-        } else if (channelUID.getId().equals(CHANNEL_RELAY02_ID_9)) {
-            handleDobissRelay(command, 2, 9);
-        } else if (channelUID.getId().equals(CHANNEL_RELAY02_ID_10)) {
-            handleDobissRelay(command, 2, 10);
-        } else if (channelUID.getId().equals(CHANNEL_RELAY02_ID_11)) {
-            handleDobissRelay(command, 2, 11);
-        } else if (channelUID.getId().equals(CHANNEL_RELAY02_ID_12)) {
-            handleDobissRelay(command, 2, 12);
-        } else if (channelUID.getId().equals(CHANNEL_DIMMER01_ID_1)) {
-            handleDobissDimmer(command, 1, 1);
-        } else if (channelUID.getId().equals(CHANNEL_DIMMER01_ID_2)) {
-            handleDobissDimmer(command, 1, 2);
-        } else if (channelUID.getId().equals(CHANNEL_DIMMER01_ID_3)) {
-            handleDobissDimmer(command, 1, 3);
-        } else if (channelUID.getId().equals(CHANNEL_DIMMER01_ID_4)) {
-            handleDobissDimmer(command, 1, 4);
-        } else if (channelUID.getId().equals(CHANNEL_DIMMER02_ID_1)) {
-            handleDobissDimmer(command, 2, 1);
-        } else if (channelUID.getId().equals(CHANNEL_DIMMER02_ID_1)) {
-            handleDobissDimmer(command, 2, 1);
-        } else if (channelUID.getId().equals(CHANNEL_DIMMER02_ID_1)) {
-            handleDobissDimmer(command, 2, 1);
-        } else if (channelUID.getId().equals(CHANNEL_DIMMER02_ID_1)) {
-            handleDobissDimmer(command, 2, 1);
+        String channelId = channelUID.getId();
+        if (CHANNEL_SCENE.equals(channelId)) {
+            handleDobissScene(command);
+            return;
+        }
+
+        DobissChannel channel = channels.get(channelId);
+        if (channel == null) {
+            logger.debug("Received command for {} on unknown channel {}", thing.getUID(), channelId);
+        } else if (channel.isRelay()) {
+            handleDobissRelay(channel, command);
         } else {
-            logger.debug("Received command for {} on unknown channel {}", thing.getUID(), channelUID.getId());
+            handleDobissDimmer(channel, command);
         }
     }
 
@@ -197,14 +145,6 @@ public class DobissHandler extends BaseThingHandler {
                     "Invalid Dobiss config. IP address is blank.");
             return;
         }
-        dobissRelay01.setIpAddress(config.ipAddress);
-        dobissRelay02.setIpAddress(config.ipAddress);
-        dobissDimmer01.setIpAddress(config.ipAddress);
-        dobissDimmer02.setIpAddress(config.ipAddress);
-        logger.debug("{}: IP address for relay01 used is {}", thing.getUID(), dobissRelay01.getIpAddress());
-        logger.debug("{}: IP address for relay02 used is {}", thing.getUID(), dobissRelay02.getIpAddress());
-        logger.debug("{}: IP address for dimmer01 used is {}", thing.getUID(), dobissDimmer01.getIpAddress());
-        logger.debug("{}: IP address for dimmer02 used is {}", thing.getUID(), dobissDimmer02.getIpAddress());
 
         // Check polling interval
         if (config.pollingInterval < 1) {
@@ -216,719 +156,514 @@ public class DobissHandler extends BaseThingHandler {
         pollingInterval = config.pollingInterval;
         logger.debug("{}: Polling interval (in seconds) used is {}", thing.getUID(), pollingInterval);
 
-        // Check relay01 address
-        if (config.addressRelay01 < 1) {
-            dobissRelay01.setModuleAddress(-1);
-            logger.debug("{}: Relay01 not used.", thing.getUID());
-        } else {
-            dobissRelay01.setModuleAddress(config.addressRelay01);
-            logger.debug("{}: Address for relay01 used is {}", thing.getUID(), dobissRelay01.getModuleAddress());
+        // Check active polling
+        if (config.activePollingInterval < 100) {
+            logger.debug("{}: DobissHandler config is invalid. Check configuration.", thing.getUID());
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR,
+                    "Invalid Dobiss config. Active polling interval is smaller than 100 ms.");
+            return;
+        }
+        if (config.activePollingWindow < 0) {
+            logger.debug("{}: DobissHandler config is invalid. Check configuration.", thing.getUID());
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR,
+                    "Invalid Dobiss config. Active polling window is smaller than 0.");
+            return;
         }
 
-        // Check relay02 address
-        if (config.addressRelay02 < 1) {
-            dobissRelay02.setModuleAddress(-1);
-            logger.debug("{}: Relay02 not used.", thing.getUID());
-        } else {
-            dobissRelay02.setModuleAddress(config.addressRelay02);
-            logger.debug("{}: Address for relay02 used is {}", thing.getUID(), dobissRelay02.getModuleAddress());
+        // Check module addresses
+        int[] relayAddresses;
+        int[] dimmerAddresses;
+        try {
+            relayAddresses = parseAddresses(config.relayAddresses, config.addressRelay01, config.addressRelay02);
+            dimmerAddresses = parseAddresses(config.dimmerAddresses, config.addressDimmer01,
+                    config.addressDimmer02);
+        } catch (NumberFormatException e) {
+            logger.debug("{}: DobissHandler config is invalid. Check configuration.", thing.getUID());
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR,
+                    "Invalid Dobiss config. Module addresses must be numbers from 1 to 255 separated by commas.");
+            return;
         }
 
-        // Check dimmer01 address
-        if (config.addressDimmer01 < 1) {
-            dobissDimmer01.setModuleAddress(-1);
-            logger.debug("{}: Dimmer01 not used.", thing.getUID());
-        } else {
-            dobissDimmer01.setModuleAddress(config.addressDimmer01);
-            logger.debug("{}: Address for dimmer01 used is {}", thing.getUID(), dobissDimmer01.getModuleAddress());
+        try {
+            gateway = DobissGateway.acquire(config.ipAddress);
+        } catch (IOException e) {
+            logger.debug("{}: Unable to start Dobiss communication: {}", thing.getUID(), e.getMessage());
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
+                    "Unable to start Dobiss communication");
+            return;
         }
+        logger.debug("{}: IP address used is {}", thing.getUID(), gateway.getIpAddress());
+
+        createModules(relayAddresses, dimmerAddresses);
+        updateModuleChannels();
+        linkedChannels.clear();
+        for (String channelId : channels.keySet()) {
+            if (isLinked(channelId)) {
+                linkedChannels.add(channelId);
+            }
+        }
+        pollSchedule = new DobissPollSchedule(modules.size(), config.activePollingInterval,
+                pollingInterval * 1000L, config.activePollingWindow * 1000L);
+        initialValuesPublished = false;
 
-        // Check dimmer02 address
-        if (config.addressDimmer02 < 1) {
-            logger.debug("{} Dimmer02 not used.", thing.getUID());
-            dobissDimmer02.setModuleAddress(-1);
-        } else {
-            dobissDimmer02.setModuleAddress(config.addressDimmer01);
-            logger.debug("{}: Address for dimmer01 used is {}", thing.getUID(), dobissDimmer02.getModuleAddress());
+        // The modules are probed in the background, the thing goes online with the first answer
+        updateStatus(ThingStatus.UNKNOWN);
+        probeModules(gateway);
+
+        startAutomaticRefresh();
+
+    }
+
+    /**
+     * Queries the status of all modules at once. The queries are pipelined on the gateway, so probing
+     * several modules takes about as long as probing one. The thing goes online as soon as one module
+     * answers, and offline when none of them does. The probe counts as the first poll of every module, and
+     * its values are published once all answers are in.
+     */
+    private void probeModules(DobissGateway gateway) {
+        List<DobissModule> modules = this.modules;
+        if (modules.isEmpty()) {
+            updateStatus(ThingStatus.ONLINE);
+            return;
         }
 
-        // Check connections to configured Dobiss modules
-        // No tcp mutex needed here as the timer is not started yet
-        if (dobissRelay01.getModuleAddress() != -1) {
-            try {
-                dobissRelay01.updateStatus();
-            } catch (IOException e) {
-                logger.debug("Communication to Dobiss relay01 unit failed!");
-                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
-                        "Unable to communicate with Dobiss relay01 unit");
+        long now = System.currentTimeMillis();
+        CompletableFuture<?>[] probes = new CompletableFuture<?>[modules.size()];
+        for (int i = 0; i < modules.size(); i++) {
+            pollSchedule.polled(i, now);
+            String moduleName = moduleNames[i];
+            probes[i] = modules.get(i).queryStatus().whenComplete((result, error) -> {
+                // Answers that arrive after the handler was disposed or re-initialized are ignored
+                if (this.gateway != gateway) {
+                    return;
+                }
+                if (error == null) {
+                    moduleAnswered();
+                } else {
+                    logger.debug("{}: Communication to Dobiss {} unit failed: {}", thing.getUID(), moduleName,
+                            error.getMessage());
+                }
+            });
+        }
+
+        // No poll starts before the probe is complete
+        pendingPoll = CompletableFuture.allOf(probes).handleAsync((result, error) -> {
+            if (this.gateway != gateway) {
+                return null;
             }
+            if (thing.getStatus() != ThingStatus.ONLINE) {
+                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR,
+                        "Unable to communicate with the Dobiss modules");
+            }
+            publishValues();
+            return null;
+        }, scheduler);
+    }
+
+    /**
+     * Puts the thing online when a module answers, also when the initial probe of all modules failed.
+     */
+    private void moduleAnswered() {
+        if (thing.getStatus() != ThingStatus.ONLINE) {
+            updateStatus(ThingStatus.ONLINE);
         }
+    }
 
-        if (dobissRelay02.getModuleAddress() != -1) {
-            try {
-                dobissRelay02.updateStatus();
-            } catch (IOException e) {
-                logger.debug("Communication to Dobiss relay02 unit failed!");
-                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
-                        "Unable to communicate with Dobiss relay02 unit");
+    @Override
+    public void channelLinked(ChannelUID channelUID) {
+        if (channels.containsKey(channelUID.getId())) {
+            linkedChannels.add(channelUID.getId());
+        }
+        super.channelLinked(channelUID);
+    }
+
+    @Override
+    public void channelUnlinked(ChannelUID channelUID) {
+        linkedChannels.remove(channelUID.getId());
+        super.channelUnlinked(channelUID);
+    }
+
+    @Override
+    public void dispose() {
+        logger.debug("{}: Disposing Dobiss handler", thing.getUID());
+
+        ScheduledFuture<?> pollingJob = this.pollingJob;
+        if (pollingJob != null) {
+            pollingJob.cancel(false);
+            this.pollingJob = null;
+        }
+
+        CompletableFuture<Void> pendingPoll = this.pendingPoll;
+        if (pendingPoll != null) {
+            pendingPoll.cancel(false);
+            this.pendingPoll = null;
+        }
+
+        DobissGateway gateway = this.gateway;
+        if (gateway != null) {
+            for (DobissModule module : modules) {
+                module.setGateway(null);
             }
+            DobissGateway.release(gateway);
+            this.gateway = null;
         }
 
-        if (dobissDimmer01.getModuleAddress() != -1) {
-            try {
-                dobissDimmer01.updateStatus();
-            } catch (IOException e) {
-                logger.debug("Communication to Dobiss dimmer01 unit failed!");
-                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
-                        "Unable to communicate with Dobiss dimmer01 unit");
+        super.dispose();
+    }
+
+    /**
+     * Parses a comma separated list of module addresses. When the list is blank, the two single
+     * addresses of the original configuration are used instead, skipping those that are not set.
+     */
+    private static int[] parseAddresses(@Nullable String list, int first, int second) {
+        if (StringUtils.isBlank(list)) {
+            return Arrays.stream(new int[] { first, second }).filter(address -> address > 0).toArray();
+        }
+
+        String[] entries = list.split(",");
+        int[] addresses = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            addresses[i] = Integer.parseInt(entries[i].trim());
+            if (addresses[i] < 1 || addresses[i] > 255) {
+                throw new NumberFormatException("Invalid Dobiss module address " + addresses[i]);
             }
         }
+        return addresses;
+    }
 
-        if (dobissDimmer02.getModuleAddress() != -1) {
-            try {
-                dobissDimmer02.updateStatus();
-            } catch (IOException e) {
-                logger.debug("Communication to Dobiss dimmer02 unit failed!");
-                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
-                        "Unable to communicate with Dobiss dimmer02 unit");
+    private void createModules(int[] relayAddresses, int[] dimmerAddresses) {
+        List<DobissModule> modules = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < relayAddresses.length; i++) {
+            DobissRelay relay = new DobissRelay();
+            relay.setModuleAddress(relayAddresses[i]);
+            modules.add(relay);
+            names.add(moduleName(RELAY_PREFIX, i + 1));
+        }
+        for (int i = 0; i < dimmerAddresses.length; i++) {
+            DobissDimmer dimmer = new DobissDimmer();
+            dimmer.setModuleAddress(dimmerAddresses[i]);
+            modules.add(dimmer);
+            names.add(moduleName(DIMMER_PREFIX, i + 1));
+        }
+
+        Map<String, DobissModule> modulesByName = new HashMap<>();
+        Map<String, DobissChannel> channels = new HashMap<>();
+        DobissChannel[][] moduleChannels = new DobissChannel[modules.size()][];
+        for (int i = 0; i < modules.size(); i++) {
+            DobissModule module = modules.get(i);
+            module.setGateway(gateway);
+            modulesByName.put(names.get(i), module);
+            moduleChannels[i] = new DobissChannel[module.getOutputCount()];
+            for (int id = 1; id <= module.getOutputCount(); id++) {
+                DobissChannel channel = new DobissChannel(channelId(names.get(i), id), module, id);
+                channels.put(channel.getChannelId(), channel);
+                moduleChannels[i][id - 1] = channel;
             }
+            logger.debug("{}: Address for {} used is {}", thing.getUID(), names.get(i), module.getModuleAddress());
         }
 
-        updateStatus(ThingStatus.ONLINE);
+        this.modules = modules;
+        this.modulesByName = modulesByName;
+        this.moduleNames = names.toArray(new String[names.size()]);
+        this.channels = Collections.unmodifiableMap(channels);
+        this.moduleChannels = moduleChannels;
+    }
 
-        startAutomaticRefresh();
+    /**
+     * Returns the configured modules, relays first, each in the order of its address list.
+     */
+    List<DobissModule> getModules() {
+        return modules;
+    }
 
+    /**
+     * Adds a channel for every output of the configured modules and removes the channels of modules that
+     * are no longer configured. The thing is only updated when its channels changed.
+     */
+    private void updateModuleChannels() {
+        ThingBuilder builder = editThing();
+        boolean changed = false;
+
+        for (int i = 0; i < moduleChannels.length; i++) {
+            for (DobissChannel channel : moduleChannels[i]) {
+                String channelId = channel.getChannelId();
+                if (thing.getChannel(channelId) == null) {
+                    boolean relay = channel.isRelay();
+                    builder.withChannel(ChannelBuilder
+                            .create(new ChannelUID(thing.getUID(), channelId), relay ? "Switch" : "Dimmer")
+                            .withType(relay ? CHANNEL_TYPE_RELAY : CHANNEL_TYPE_DIMMER)
+                            .withLabel(StringUtils.capitalize(moduleNames[i]) + " output " + channel.getOutput())
+                            .build());
+                    changed = true;
+                }
+            }
+        }
+
+        for (Channel channel : thing.getChannels()) {
+            String channelId = channel.getUID().getId();
+            if (MODULE_CHANNEL_PATTERN.matcher(channelId).matches() && !channels.containsKey(channelId)) {
+                builder.withoutChannel(channel.getUID());
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            logger.debug("{}: Updating channels for {} Dobiss modules", thing.getUID(), modules.size());
+            updateThing(builder.build());
+        }
     }
 
-    private void handleDobissRelay(Command command, int relayIndex, int id) {
+    private void handleDobissRelay(DobissChannel channel, Command command) {
         logger.debug("Handling Dobiss relay command for {}: {}", thing.getUID(), command);
 
         if (command instanceof RefreshType) {
-            switch (id) {
-                case 1:
-                    switch (relayIndex) {
-                        case 1:
-                            updateState(CHANNEL_RELAY01_ID_1,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay01.id01)));
-                            break;
-                        case 2:
-                            updateState(CHANNEL_RELAY02_ID_1,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay02.id01)));
-                            break;
-                        default:
-                            logger.debug("Internal error: Wrong relay index");
-                    }
-                    break;
-                case 2:
-                    switch (relayIndex) {
-                        case 1:
-                            updateState(CHANNEL_RELAY01_ID_2,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay01.id02)));
-                            break;
-                        case 2:
-                            updateState(CHANNEL_RELAY02_ID_2,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay02.id02)));
-                            break;
-                        default:
-                            logger.debug("Internal error: Wrong relay index");
-                    }
-                    break;
-                case 3:
-                    switch (relayIndex) {
-                        case 1:
-                            updateState(CHANNEL_RELAY01_ID_3,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay01.id03)));
-                            break;
-                        case 2:
-                            updateState(CHANNEL_RELAY02_ID_3,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay02.id03)));
-                            break;
-                        default:
-                            logger.debug("Internal error: Wrong relay index");
-                    }
-                    break;
-                case 4:
-                    switch (relayIndex) {
-                        case 1:
-                            updateState(CHANNEL_RELAY01_ID_4,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay01.id04)));
-                            break;
-                        case 2:
-                            updateState(CHANNEL_RELAY02_ID_4,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay02.id04)));
-                            break;
-                        default:
-                            logger.debug("Internal error: Wrong relay index");
-                    }
-                    break;
-                case 5:
-                    switch (relayIndex) {
-                        case 1:
-                            updateState(CHANNEL_RELAY01_ID_5,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay01.id05)));
-                            break;
-                        case 2:
-                            updateState(CHANNEL_RELAY02_ID_5,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay02.id05)));
-                            break;
-                        default:
-                            logger.debug("Internal error: Wrong relay index");
-                    }
-                    break;
-                case 6:
-                    switch (relayIndex) {
-                        case 1:
-                            updateState(CHANNEL_RELAY01_ID_6,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay01.id06)));
-                            break;
-                        case 2:
-                            updateState(CHANNEL_RELAY02_ID_6,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay02.id06)));
-                            break;
-                        default:
-                            logger.debug("Internal error: Wrong relay index");
-                    }
-                    break;
-                case 7:
-                    switch (relayIndex) {
-                        case 1:
-                            updateState(CHANNEL_RELAY01_ID_7,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay01.id07)));
-                            break;
-                        case 2:
-                            updateState(CHANNEL_RELAY02_ID_7,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay02.id07)));
-                            break;
-                        default:
-                            logger.debug("Internal error: Wrong relay index");
-                    }
-                    break;
-                case 8:
-                    switch (relayIndex) {
-                        case 1:
-                            updateState(CHANNEL_RELAY01_ID_8,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay01.id08)));
-                            break;
-                        case 2:
-                            updateState(CHANNEL_RELAY02_ID_8,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay02.id08)));
-                            break;
-                        default:
-                            logger.debug("Internal error: Wrong relay index");
-                    }
-                    break;
-                case 9:
-                    switch (relayIndex) {
-                        case 1:
-                            updateState(CHANNEL_RELAY01_ID_9,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay01.id09)));
-                            break;
-                        case 2:
-                            updateState(CHANNEL_RELAY02_ID_9,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay02.id09)));
-                            break;
-                        default:
-                            logger.debug("Internal error: Wrong relay index");
-                    }
-                    break;
-                case 10:
-                    switch (relayIndex) {
-                        case 1:
-                            updateState(CHANNEL_RELAY01_ID_10,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay01.id10)));
-                            break;
-                        case 2:
-                            updateState(CHANNEL_RELAY02_ID_10,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay02.id10)));
-                            break;
-                        default:
-                            logger.debug("Internal error: Wrong relay index");
-                    }
-                    break;
-                case 11:
-                    switch (relayIndex) {
-                        case 1:
-                            updateState(CHANNEL_RELAY01_ID_11,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay01.id11)));
-                            break;
-                        case 2:
-                            updateState(CHANNEL_RELAY02_ID_11,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay02.id11)));
-                            break;
-                        default:
-                            logger.debug("Internal error: Wrong relay index");
-                    }
-                    break;
-                case 12:
-                    switch (relayIndex) {
-                        case 1:
-                            updateState(CHANNEL_RELAY01_ID_12,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay01.id12)));
-                            break;
-                        case 2:
-                            updateState(CHANNEL_RELAY02_ID_12,
-                                    DecimalType.valueOf(Integer.toString(dobissRelay02.id12)));
-                            break;
-                        default:
-                            logger.debug("Internal error: Wrong relay index");
-                    }
-                    break;
-                default:
-                    logger.debug("Command {} not implemented for thing {}", command, thing.getUID());
-            }
-
+            updateState(channel.getChannelId(), DobissStates.relay(channel.getValue()));
         } else {
             // Command must be either ON or OFF
-            if (command.toString().equals("OFF")) {
-                sendDobissRelay(id, relayIndex, 0);
-            } else if (command.toString().equals("ON")) {
-                sendDobissRelay(id, relayIndex, 1);
+            if (command == OnOffType.OFF) {
+                sendDobissCommand(channel, 0);
+            } else if (command == OnOffType.ON) {
+                sendDobissCommand(channel, 1);
             } else {
                 logger.debug("Command {} not implemented for thing {}", command, thing.getUID());
             }
         }
     }
 
-    private void handleDobissDimmer(Command command, int dimmerIndex, int id) {
+    private void handleDobissDimmer(DobissChannel channel, Command command) {
         logger.debug("Handling Dobiss dimmer command for {}: {}", thing.getUID(), command);
 
+        DobissModule dimmer = channel.getModule();
         if (command instanceof RefreshType) {
-            switch (id) {
-                case 1:
-                    switch (dimmerIndex) {
-                        case 1:
-                            updateState(CHANNEL_DIMMER01_ID_1,
-                                    PercentType.valueOf(Integer.toString(dobissDimmer01.id01)));
-                            break;
-                        case 2:
-                            updateState(CHANNEL_DIMMER02_ID_1,
-                                    PercentType.valueOf(Integer.toString(dobissDimmer02.id01)));
-                            break;
-                        default:
-                            logger.debug("Internal error: Wrong dimmer index");
-                    }
-                    break;
-                case 2:
-                    switch (dimmerIndex) {
-                        case 1:
-                            updateState(CHANNEL_DIMMER01_ID_2,
-                                    PercentType.valueOf(Integer.toString(dobissDimmer01.id02)));
-                            break;
-                        case 2:
-                            updateState(CHANNEL_DIMMER02_ID_2,
-                                    PercentType.valueOf(Integer.toString(dobissDimmer02.id02)));
-                            break;
-                        default:
-                            logger.debug("Internal error: Wrong dimmer index");
-                    }
-                    break;
-                case 3:
-                    switch (dimmerIndex) {
-                        case 1:
-                            updateState(CHANNEL_DIMMER01_ID_3,
-                                    PercentType.valueOf(Integer.toString(dobissDimmer01.id03)));
-                            break;
-                        case 2:
-                            updateState(CHANNEL_DIMMER02_ID_3,
-                                    PercentType.valueOf(Integer.toString(dobissDimmer02.id03)));
-                            break;
-                        default:
-                            logger.debug("Internal error: Wrong dimmer index");
-                    }
-                    break;
-                case 4:
-                    switch (dimmerIndex) {
-                        case 1:
-                            updateState(CHANNEL_DIMMER01_ID_4,
-                                    PercentType.valueOf(Integer.toString(dobissDimmer01.id04)));
-                            break;
-                        case 2:
-                            updateState(CHANNEL_DIMMER02_ID_4,
-                                    PercentType.valueOf(Integer.toString(dobissDimmer02.id04)));
-                            break;
-                        default:
-                            logger.debug("Internal error: Wrong dimmer index");
-                    }
-                    break;
-                default:
-                    logger.debug("Command {} not implemented for thing {}", command, thing.getUID());
-            }
-
+            updateState(channel.getChannelId(), DobissStates.dimmer(channel.getValue()));
+        } else if (command instanceof OnOffType) {
+            sendDobissCommand(channel, command == OnOffType.ON ? dimmer.getMaxValue() : 0);
         } else {
             // Command must be number between 0 and 100
-            int dimmerValue = Integer.parseInt(command.toString());
-            if ((0 <= dimmerValue) && (100 >= dimmerValue)) {
-                sendDobissDimmer(id, dimmerIndex, dimmerValue);
+            int dimmerValue;
+            try {
+                dimmerValue = Integer.parseInt(command.toString());
+            } catch (NumberFormatException e) {
+                dimmerValue = -1;
+            }
+            if ((0 <= dimmerValue) && (dimmer.getMaxValue() >= dimmerValue)) {
+                sendDobissCommand(channel, dimmerValue);
             } else {
                 logger.debug("Command {} not implemented for thing {}", command, thing.getUID());
             }
         }
     }
 
-    private void sendDobissRelay(int id, int relayIndex, int onOff) {
-        switch (relayIndex) {
-            case 1:
-                try {
-                    mutex_tcp_communication.acquire();
-                    try {
-                        dobissRelay01.sendCommand(id, onOff);
-                    } finally {
-                        mutex_tcp_communication.release();
-                    }
-                } catch (IOException e) {
-                    logger.info("Unable to send command to relay01 for id {} switching to {}", id, onOff);
-                } catch (InterruptedException e) {
-                    logger.info("Mutex error for Dobiss tcp communication.");
-                }
-                break;
-            case 2:
-                try {
-                    mutex_tcp_communication.acquire();
-                    try {
-                        dobissRelay02.sendCommand(id, onOff);
-                    } finally {
-                        mutex_tcp_communication.release();
-                    }
-                } catch (IOException e) {
-                    logger.info("Unable to send command to relay02 for id {} switching to {}", id, onOff);
-                } catch (InterruptedException e) {
-                    logger.info("Mutex error for Dobiss tcp communication.");
-                }
-                break;
-            default:
-                logger.debug("Internal error: Wrong relay index");
-        }
+    private void sendDobissCommand(DobissChannel channel, int value) {
+        markActive(channel.getModule());
 
+        // The gateway queues the command, so the calling thread does not wait for the tcp communication
+        channel.getModule().sendCommand(channel.getOutput(), value).whenComplete((result, e) -> {
+            if (e != null) {
+                logger.info("Unable to send command to {} switching to {}", channel.getChannelId(), value);
+            }
+        });
     }
 
-    private void sendDobissDimmer(int id, int index, int value) {
-        switch (index) {
-            case 1:
-                try {
-                    mutex_tcp_communication.acquire();
-                    try {
-                        dobissDimmer01.sendCommand(id, value);
-                    } finally {
-                        mutex_tcp_communication.release();
-                    }
-                } catch (IOException e) {
-                    logger.info("Unable to send command to dimmer01 for id {} percentage to {}", id, value);
-                } catch (InterruptedException e) {
-                    logger.info("Mutex error for Dobiss tcp communication.");
-                }
-                break;
-            case 2:
-                try {
-                    mutex_tcp_communication.acquire();
-                    try {
-                        dobissDimmer02.sendCommand(id, value);
-                    } finally {
-                        mutex_tcp_communication.release();
-                    }
-                } catch (IOException e) {
-                    logger.info("Unable to send command to dimmer02 for id {} percentage to {}", id, value);
-                } catch (InterruptedException e) {
-                    logger.info("Mutex error for Dobiss tcp communication.");
-                }
-                break;
-            default:
-                logger.debug("Internal error: Wrong relay index");
+    /**
+     * Handles a scene command: a list of outputs with their new value, separated by ';' or ',', e.g.
+     * "relay01.3=ON; relay02.12=OFF; dimmer01.2=40". All outputs are switched in one gateway request.
+     */
+    private void handleDobissScene(Command command) {
+        logger.debug("Handling Dobiss scene command for {}: {}", thing.getUID(), command);
+
+        if (command instanceof RefreshType) {
+            return;
         }
 
-    }
+        DobissGateway gateway = this.gateway;
+        if (gateway == null) {
+            logger.debug("No Dobiss gateway for {}, ignoring scene {}", thing.getUID(), command);
+            return;
+        }
 
-    private void publishValue(ChannelUID channelUID) {
-        logger.debug("Publishing value for channel {}", channelUID);
+        DobissScene scene = new DobissScene();
+        List<DobissModule> sceneModules = new ArrayList<>();
+        for (String entry : command.toString().split("[;,]")) {
+            if (StringUtils.isBlank(entry)) {
+                continue;
+            }
+            DobissModule module = addSceneEntry(scene, entry.trim());
+            if (module == null) {
+                logger.info("Invalid entry '{}' in Dobiss scene for {}, scene not sent", entry.trim(),
+                        thing.getUID());
+                return;
+            }
+            sceneModules.add(module);
+        }
 
-        String channelID = channelUID.getId();
-        switch (channelID) {
-            case CHANNEL_RELAY01_ID_1:
-                if (dobissRelay01Id01 != dobissRelay01.id01) {
-                    updateState(CHANNEL_RELAY01_ID_1, DecimalType.valueOf(Integer.toString(dobissRelay01.id01)));
-                    dobissRelay01Id01 = dobissRelay01.id01;
-                    logger.debug("Update status for relay01_id01 {}", dobissRelay01.id01);
-                }
-                break;
-            case CHANNEL_RELAY01_ID_2:
-                if (dobissRelay01Id02 != dobissRelay01.id02) {
-                    updateState(CHANNEL_RELAY01_ID_2, DecimalType.valueOf(Integer.toString(dobissRelay01.id02)));
-                    dobissRelay01Id02 = dobissRelay01.id02;
-                    logger.debug("Update status for relay01_id02 {}", dobissRelay01.id02);
-                }
-                break;
-            case CHANNEL_RELAY01_ID_3:
-                if (dobissRelay01Id03 != dobissRelay01.id03) {
-                    updateState(CHANNEL_RELAY01_ID_3, DecimalType.valueOf(Integer.toString(dobissRelay01.id03)));
-                    dobissRelay01Id03 = dobissRelay01.id03;
-                    logger.debug("Update status for relay01_id03 {}", dobissRelay01.id03);
-                }
-                break;
-            case CHANNEL_RELAY01_ID_4:
-                if (dobissRelay01Id04 != dobissRelay01.id04) {
-                    updateState(CHANNEL_RELAY01_ID_4, DecimalType.valueOf(Integer.toString(dobissRelay01.id04)));
-                    dobissRelay01Id04 = dobissRelay01.id04;
-                    logger.debug("Update status for relay01_id04 {}", dobissRelay01.id04);
-                }
-                break;
-            case CHANNEL_RELAY01_ID_5:
-                if (dobissRelay01Id05 != dobissRelay01.id05) {
-                    updateState(CHANNEL_RELAY01_ID_5, DecimalType.valueOf(Integer.toString(dobissRelay01.id05)));
-                    dobissRelay01Id05 = dobissRelay01.id05;
-                    logger.debug("Update status for relay01_id05 {}", dobissRelay01.id05);
-                }
-                break;
-            case CHANNEL_RELAY01_ID_6:
-                if (dobissRelay01Id06 != dobissRelay01.id06) {
-                    updateState(CHANNEL_RELAY01_ID_6, DecimalType.valueOf(Integer.toString(dobissRelay01.id06)));
-                    dobissRelay01Id06 = dobissRelay01.id06;
-                    logger.debug("Update status for relay01_id06 {}", dobissRelay01.id06);
-                }
-                break;
-            case CHANNEL_RELAY01_ID_7:
-                if (dobissRelay01Id07 != dobissRelay01.id07) {
-                    updateState(CHANNEL_RELAY01_ID_7, DecimalType.valueOf(Integer.toString(dobissRelay01.id07)));
-                    dobissRelay01Id07 = dobissRelay01.id07;
-                    logger.debug("Update status for relay01_id07 {}", dobissRelay01.id07);
-                }
-                break;
-            case CHANNEL_RELAY01_ID_8:
-                if (dobissRelay01Id08 != dobissRelay01.id08) {
-                    updateState(CHANNEL_RELAY01_ID_8, DecimalType.valueOf(Integer.toString(dobissRelay01.id08)));
-                    dobissRelay01Id08 = dobissRelay01.id08;
-                    logger.debug("Update status for relay01_id08 {}", dobissRelay01.id08);
-                }
-                break;
-            case CHANNEL_RELAY01_ID_9:
-                if (dobissRelay01Id09 != dobissRelay01.id09) {
-                    updateState(CHANNEL_RELAY01_ID_9, DecimalType.valueOf(Integer.toString(dobissRelay01.id09)));
-                    dobissRelay01Id09 = dobissRelay01.id09;
-                    logger.debug("Update status for relay01_id09 {}", dobissRelay01.id09);
-                }
-                break;
-            case CHANNEL_RELAY01_ID_10:
-                if (dobissRelay01Id10 != dobissRelay01.id10) {
-                    updateState(CHANNEL_RELAY01_ID_10, DecimalType.valueOf(Integer.toString(dobissRelay01.id10)));
-                    dobissRelay01Id10 = dobissRelay01.id10;
-                    logger.debug("Update status for relay01_id10 {}", dobissRelay01.id10);
-                }
-                break;
-            case CHANNEL_RELAY01_ID_11:
-                if (dobissRelay01Id11 != dobissRelay01.id11) {
-                    updateState(CHANNEL_RELAY01_ID_11, DecimalType.valueOf(Integer.toString(dobissRelay01.id11)));
-                    dobissRelay01Id11 = dobissRelay01.id11;
-                    logger.debug("Update status for relay01_id11 {}", dobissRelay01.id11);
-                }
-                break;
-            case CHANNEL_RELAY01_ID_12:
-                if (dobissRelay01Id12 != dobissRelay01.id12) {
-                    updateState(CHANNEL_RELAY01_ID_12, DecimalType.valueOf(Integer.toString(dobissRelay01.id12)));
-                    dobissRelay01Id12 = dobissRelay01.id12;
-                    logger.debug("Update status for relay01_id12 {}", dobissRelay01.id12);
-                }
-                break;
-            case CHANNEL_RELAY02_ID_1:
-                if (dobissRelay02Id01 != dobissRelay02.id01) {
-                    updateState(CHANNEL_RELAY02_ID_1, DecimalType.valueOf(Integer.toString(dobissRelay02.id01)));
-                    dobissRelay02Id01 = dobissRelay02.id01;
-                    logger.debug("Update status for relay02_id01 {}", dobissRelay02.id01);
-                }
-                break;
-            case CHANNEL_RELAY02_ID_2:
-                if (dobissRelay02Id02 != dobissRelay02.id02) {
-                    updateState(CHANNEL_RELAY02_ID_2, DecimalType.valueOf(Integer.toString(dobissRelay02.id02)));
-                    dobissRelay02Id02 = dobissRelay02.id02;
-                    logger.debug("Update status for relay02_id02 {}", dobissRelay02.id02);
-                }
-                break;
-            case CHANNEL_RELAY02_ID_3:
-                if (dobissRelay02Id03 != dobissRelay02.id03) {
-                    updateState(CHANNEL_RELAY02_ID_3, DecimalType.valueOf(Integer.toString(dobissRelay02.id03)));
-                    dobissRelay02Id03 = dobissRelay02.id03;
-                    logger.debug("Update status for relay02_id03 {}", dobissRelay02.id03);
-                }
-                break;
-            case CHANNEL_RELAY02_ID_4:
-                if (dobissRelay02Id04 != dobissRelay02.id04) {
-                    updateState(CHANNEL_RELAY02_ID_4, DecimalType.valueOf(Integer.toString(dobissRelay02.id04)));
-                    dobissRelay02Id04 = dobissRelay02.id04;
-                    logger.debug("Update status for relay02_id04 {}", dobissRelay02.id04);
-                }
-                break;
-            case CHANNEL_RELAY02_ID_5:
-                if (dobissRelay02Id05 != dobissRelay02.id05) {
-                    updateState(CHANNEL_RELAY02_ID_5, DecimalType.valueOf(Integer.toString(dobissRelay02.id05)));
-                    dobissRelay02Id05 = dobissRelay02.id05;
-                    logger.debug("Update status for relay02_id05 {}", dobissRelay02.id05);
-                }
-                break;
-            case CHANNEL_RELAY02_ID_6:
-                if (dobissRelay02Id06 != dobissRelay02.id06) {
-                    updateState(CHANNEL_RELAY02_ID_6, DecimalType.valueOf(Integer.toString(dobissRelay02.id06)));
-                    dobissRelay02Id06 = dobissRelay02.id06;
-                    logger.debug("Update status for relay02_id06 {}", dobissRelay02.id06);
-                }
-                break;
-            case CHANNEL_RELAY02_ID_7:
-                if (dobissRelay02Id07 != dobissRelay02.id07) {
-                    updateState(CHANNEL_RELAY02_ID_7, DecimalType.valueOf(Integer.toString(dobissRelay02.id07)));
-                    dobissRelay02Id07 = dobissRelay02.id07;
-                    logger.debug("Update status for relay02_id07 {}", dobissRelay02.id07);
-                }
-                break;
-            case CHANNEL_RELAY02_ID_8:
-                if (dobissRelay02Id08 != dobissRelay02.id08) {
-                    updateState(CHANNEL_RELAY02_ID_8, DecimalType.valueOf(Integer.toString(dobissRelay02.id08)));
-                    dobissRelay02Id08 = dobissRelay02.id08;
-                    logger.debug("Update status for relay02_id08 {}", dobissRelay02.id08);
-                }
-                break;
-            case CHANNEL_RELAY02_ID_9:
-                if (dobissRelay02Id09 != dobissRelay02.id09) {
-                    updateState(CHANNEL_RELAY02_ID_9, DecimalType.valueOf(Integer.toString(dobissRelay02.id09)));
-                    dobissRelay02Id09 = dobissRelay02.id09;
-                    logger.debug("Update status for relay02_id09 {}", dobissRelay02.id09);
-                }
-                break;
-            case CHANNEL_RELAY02_ID_10:
-                if (dobissRelay02Id10 != dobissRelay02.id10) {
-                    updateState(CHANNEL_RELAY02_ID_10, DecimalType.valueOf(Integer.toString(dobissRelay02.id10)));
-                    dobissRelay02Id10 = dobissRelay02.id10;
-                    logger.debug("Update status for relay02_id10 {}", dobissRelay02.id10);
-                }
-                break;
-            case CHANNEL_RELAY02_ID_11:
-                if (dobissRelay02Id11 != dobissRelay02.id11) {
-                    updateState(CHANNEL_RELAY02_ID_11, DecimalType.valueOf(Integer.toString(dobissRelay02.id11)));
-                    dobissRelay02Id11 = dobissRelay02.id11;
-                    logger.debug("Update status for relay02_id11 {}", dobissRelay02.id11);
-                }
-                break;
-            case CHANNEL_RELAY02_ID_12:
-                if (dobissRelay02Id12 != dobissRelay02.id12) {
-                    updateState(CHANNEL_RELAY02_ID_12, DecimalType.valueOf(Integer.toString(dobissRelay02.id12)));
-                    dobissRelay02Id12 = dobissRelay02.id12;
-                    logger.debug("Update status for relay02_id12 {}", dobissRelay02.id12);
-                }
-                break;
-            case CHANNEL_DIMMER01_ID_1:
-                if (dobissDimmer01Id01 != dobissDimmer01.id01) {
-                    updateState(CHANNEL_DIMMER01_ID_1, PercentType.valueOf(Integer.toString(dobissDimmer01.id01)));
-                    dobissDimmer01Id01 = dobissDimmer01.id01;
-                    logger.debug("Update status for dimmer01_id01 {}", dobissDimmer01.id01);
-                }
-                break;
-            case CHANNEL_DIMMER01_ID_2:
-                if (dobissDimmer01Id02 != dobissDimmer01.id02) {
-                    updateState(CHANNEL_DIMMER01_ID_2, PercentType.valueOf(Integer.toString(dobissDimmer01.id02)));
-                    dobissDimmer01Id02 = dobissDimmer01.id02;
-                    logger.debug("Update status for dimmer01_id02 {}", dobissDimmer01.id02);
-                }
-                break;
-            case CHANNEL_DIMMER01_ID_3:
-                if (dobissDimmer01Id03 != dobissDimmer01.id03) {
-                    updateState(CHANNEL_DIMMER01_ID_3, PercentType.valueOf(Integer.toString(dobissDimmer01.id03)));
-                    dobissDimmer01Id03 = dobissDimmer01.id03;
-                    logger.debug("Update status for dimmer01_id03 {}", dobissDimmer01.id03);
-                }
-                break;
-            case CHANNEL_DIMMER01_ID_4:
-                if (dobissDimmer01Id04 != dobissDimmer01.id04) {
-                    updateState(CHANNEL_DIMMER01_ID_4, PercentType.valueOf(Integer.toString(dobissDimmer01.id04)));
-                    dobissDimmer01Id04 = dobissDimmer01.id04;
-                    logger.debug("Update status for dimmer01_id04 {}", dobissDimmer01.id04);
-                }
-                break;
-            case CHANNEL_DIMMER02_ID_1:
-                if (dobissDimmer02Id01 != dobissDimmer02.id01) {
-                    updateState(CHANNEL_DIMMER02_ID_1, PercentType.valueOf(Integer.toString(dobissDimmer02.id01)));
-                    dobissDimmer02Id01 = dobissDimmer02.id01;
-                    logger.debug("Update status for dimmer02_id01 {}", dobissDimmer02.id01);
-                }
-                break;
-            case CHANNEL_DIMMER02_ID_2:
-                if (dobissDimmer02Id02 != dobissDimmer02.id02) {
-                    updateState(CHANNEL_DIMMER02_ID_2, PercentType.valueOf(Integer.toString(dobissDimmer02.id02)));
-                    dobissDimmer02Id02 = dobissDimmer02.id02;
-                    logger.debug("Update status for dimmer02_id02 {}", dobissDimmer02.id02);
-                }
-                break;
-            case CHANNEL_DIMMER02_ID_3:
-                if (dobissDimmer02Id03 != dobissDimmer02.id03) {
-                    updateState(CHANNEL_DIMMER02_ID_3, PercentType.valueOf(Integer.toString(dobissDimmer02.id03)));
-                    dobissDimmer02Id03 = dobissDimmer02.id03;
-                    logger.debug("Update status for dimmer02_id03 {}", dobissDimmer02.id03);
-                }
-                break;
-            case CHANNEL_DIMMER02_ID_4:
-                if (dobissDimmer02Id04 != dobissDimmer02.id04) {
-                    updateState(CHANNEL_DIMMER02_ID_4, PercentType.valueOf(Integer.toString(dobissDimmer02.id04)));
-                    dobissDimmer02Id04 = dobissDimmer02.id04;
-                    logger.debug("Update status for dimmer02_id04 {}", dobissDimmer02.id04);
-                }
-                break;
-            default:
-                logger.debug("Can not update channel with ID : {} - channel name might be wrong!", channelID);
-                break;
+        for (DobissModule module : sceneModules) {
+            markActive(module);
         }
+
+        scene.send(gateway).whenComplete((result, e) -> {
+            if (e != null) {
+                logger.info("Unable to send scene {} for {}", command, thing.getUID());
+            }
+        });
     }
 
-    private void queryDobiss() {
-        try {
-            dobissRelay01.updateStatus();
-        } catch (IOException e) {
-            logger.info("Unable to update values for relay01");
+    private @Nullable DobissModule addSceneEntry(DobissScene scene, String entry) {
+        String[] output = entry.split("[.=]");
+        if (output.length != 3) {
+            return null;
         }
+
+        DobissModule module = modulesByName.get(output[0].trim().toLowerCase());
+        String value = output[2].trim().toUpperCase();
+        int id;
         try {
-            dobissRelay02.updateStatus();
-        } catch (IOException e) {
-            logger.info("Unable to update values for relay02");
+            id = Integer.parseInt(output[1].trim());
+        } catch (NumberFormatException e) {
+            return null;
         }
-        try {
-            dobissDimmer01.updateStatus();
-        } catch (IOException e) {
-            logger.info("Unable to update values for dimmer01");
+        if (module == null || id < 1 || id > module.getOutputCount()) {
+            return null;
         }
-        try {
-            dobissDimmer02.updateStatus();
-        } catch (IOException e) {
-            logger.info("Unable to update values for dimmer02");
+
+        int outputValue;
+        if ("ON".equals(value)) {
+            outputValue = module.getMaxValue();
+        } else if ("OFF".equals(value)) {
+            outputValue = 0;
+        } else {
+            try {
+                outputValue = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        if ((0 > outputValue) || (module.getMaxValue() < outputValue)) {
+            return null;
         }
+        scene.add(module, id, outputValue);
+        return module;
     }
 
-    private void startAutomaticRefresh() {
-        logger.debug("Starting automatic refresh");
+    private static String moduleName(String prefix, int index) {
+        return String.format("%s%02d", prefix, index);
+    }
 
-        timer = new Timer();
-        timer.scheduleAtFixedRate(new PeriodicTask(), pollingDelay, pollingInterval * 1000);
+    private static String channelId(String moduleName, int id) {
+        return moduleName + "_channel" + id;
+    }
 
-        logger.debug("Start automatic refresh every {} seconds", pollingInterval);
+    /**
+     * Polls the module at the active interval for a while, e.g. after a command was sent to it.
+     */
+    private void markActive(DobissModule module) {
+        int index = modules.indexOf(module);
+        if (index >= 0) {
+            pollSchedule.activity(index, System.currentTimeMillis());
+        }
     }
 
-    class PeriodicTask extends TimerTask {
+    /**
+     * Queries the modules that are due according to the poll schedule.
+     *
+     * @return the combined query, or null when no module is due
+     */
+    private @Nullable CompletableFuture<Void> queryDobiss(DobissGateway gateway) {
+        long now = System.currentTimeMillis();
+
+        // Queue the status queries of all due modules at once. The gateway pipelines them over its
+        // connection and every module decodes its answer as soon as it arrives.
+        List<CompletableFuture<Void>> queries = new ArrayList<>();
+        for (int i = 0; i < modules.size(); i++) {
+            if (!pollSchedule.isDue(i, now)) {
+                continue;
+            }
+            pollSchedule.polled(i, now);
+
+            String name = moduleNames[i];
+            queries.add(modules.get(i).queryStatus().thenRun(() -> {
+                // Answers that arrive after the handler was disposed or re-initialized are ignored
+                if (this.gateway == gateway) {
+                    moduleAnswered();
+                }
+            }).exceptionally(e -> {
+                logger.info("Unable to update values for {}", name);
+                return null;
+            }));
+        }
 
-        @Override
-        public void run() {
+        if (queries.isEmpty()) {
+            return null;
+        }
+        return CompletableFuture.allOf(queries.toArray(new CompletableFuture<?>[queries.size()]));
+    }
 
-            try {
-                mutex_tcp_communication.acquire();
-                try {
-                    queryDobiss();
-                } finally {
-                    mutex_tcp_communication.release();
-                }
-            } catch (InterruptedException e) {
-                logger.info("Mutex error for Dobiss tcp communication.");
+    /**
+     * Publishes the outputs that changed since the previous poll. Only the changed outputs are visited and
+     * only those with a linked channel are published.
+     */
+    void publishValues() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < modules.size(); i++) {
+            // Only the outputs that changed since the previous poll are visited, in order of their bit
+            int changed = modules.get(i).takeChangedOutputs();
+            if (changed != 0 && initialValuesPublished) {
+                // A change can be a wall switch press; more are likely to follow soon
+                pollSchedule.activity(i, now);
             }
+            while (changed != 0) {
+                DobissChannel channel = moduleChannels[i][Integer.numberOfTrailingZeros(changed)];
+                changed &= changed - 1;
 
-            List<Channel> channels = getThing().getChannels();
-            for (Channel channel : channels) {
-                if (isLinked(channel.getUID().getId())) {
-                    publishValue(channel.getUID());
+                String channelId = channel.getChannelId();
+                if (linkedChannels.contains(channelId)) {
+                    int value = channel.getValue();
+                    updateState(channelId, channel.isRelay() ? DobissStates.relay(value) : DobissStates.dimmer(value));
+                    logger.debug("Update status for {} {}", channelId, value);
                 }
             }
-
         }
+        initialValuesPublished = true;
+    }
+
+    private void startAutomaticRefresh() {
+        logger.debug("Starting automatic refresh");
+
+        // The job runs at the active interval; every tick only polls the modules that are due
+        long activeInterval = pollSchedule.getActiveInterval();
+        long delay = pollingDelay + ThreadLocalRandom.current().nextLong(activeInterval);
+        pollingJob = ThreadPoolManager.getScheduledPool(THREAD_POOL_NAME).scheduleAtFixedRate(this::poll, delay,
+                activeInterval, TimeUnit.MILLISECONDS);
+
+        logger.debug("Start automatic refresh every {} seconds, every {} ms when active", pollingInterval,
+                pollSchedule.getActiveInterval());
+    }
 
+    private void poll() {
+        // The gateway serializes the requests of all things using it, so the poll only queues its queries
+        // and the values are published from the thing handler pool once all answers are in
+        CompletableFuture<Void> poll = pendingPoll;
+        if (poll != null && !poll.isDone()) {
+            logger.debug("Previous poll of {} still running, skipping this one", thing.getUID());
+            return;
+        }
+        DobissGateway gateway = this.gateway;
+        if (gateway == null) {
+            return;
+        }
+        try {
+            CompletableFuture<Void> query = queryDobiss(gateway);
+            if (query != null) {
+                pendingPoll = query.thenRunAsync(() -> {
+                    if (this.gateway == gateway) {
+                        publishValues();
+                    }
+                }, scheduler);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Unexpected error while polling {}", thing.getUID(), e);
+        }
     }
 
 }
@@ -0,0 +1,240 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dobiss.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link DobissModule} is one Dobiss module (relay or dimmer) behind a gateway. It keeps the last
+ * known value of each of its outputs, and a mask of the outputs whose value changed since the mask was
+ * last taken: bit 0 for output 1.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public abstract class DobissModule {
+
+    private final Logger logger = LoggerFactory.getLogger(DobissModule.class);
+
+    // Number of outputs of the module, at most 32
+    private final int outputCount;
+
+    // Outputs whose value changed since the mask was last taken, bit 0 for output 1
+    private final AtomicInteger changedOutputs;
+
+    // Dobiss gateway through which the module can be reached
+    @Nullable
+    private DobissGateway gateway;
+
+    // Dobiss module address as defined by the Dobiss software
+    private int moduleAddress;
+
+    // Frames that only depend on the module address, built once
+    private byte[] statusFrame;
+    private byte[] headerFrame;
+
+    // Decodes status answers in place, created once so a poll does not allocate it
+    private final DobissAnswerDecoder statusDecoder = this::decodeStatus;
+
+    protected DobissModule(int outputCount) {
+        this.outputCount = outputCount;
+        // Nothing was taken yet, so every output counts as changed
+        this.changedOutputs = new AtomicInteger(outputCount == 32 ? -1 : (1 << outputCount) - 1);
+        moduleAddress = -1;
+        statusFrame = DobissFrameCodec.statusQuery(-1);
+        headerFrame = header(-1);
+    }
+
+    /**
+     * Builds the header that precedes a command for this kind of module.
+     */
+    protected abstract byte[] header(int moduleAddress);
+
+    /**
+     * Builds the command that sets one output of this kind of module.
+     */
+    protected abstract byte[] command(int moduleAddress, int id, int value);
+
+    /**
+     * Returns the highest value an output of this kind of module can have.
+     */
+    public abstract int getMaxValue();
+
+    /**
+     * Returns the kind of module, as used in logging.
+     */
+    protected abstract String getTypeName();
+
+    /**
+     * Stores the output values of a checked status answer, read in place.
+     *
+     * @return mask of the outputs whose value changed
+     */
+    protected abstract int storeOutputs(ByteBuffer answer);
+
+    /**
+     * Stores the new value of one output.
+     *
+     * @return whether the value changed
+     */
+    protected abstract boolean storeOutput(int id, int value);
+
+    public String getIpAddress() {
+        DobissGateway gateway = this.gateway;
+        return gateway == null ? "Not defined" : gateway.getIpAddress();
+    }
+
+    public void setGateway(@Nullable DobissGateway gateway) {
+        this.gateway = gateway;
+    }
+
+    public int getModuleAddress() {
+        return moduleAddress;
+    }
+
+    public void setModuleAddress(int address) {
+        this.moduleAddress = address;
+        this.statusFrame = DobissFrameCodec.statusQuery(address);
+        this.headerFrame = header(address);
+    }
+
+    public int getOutputCount() {
+        return outputCount;
+    }
+
+    /**
+     * Returns the last known value of one output, starting at 1.
+     */
+    public abstract int getOutput(int id);
+
+    /**
+     * Returns the last known values of all outputs, output 1 first.
+     */
+    public int[] getOutputs() {
+        int[] outputs = new int[outputCount];
+        for (int id = 1; id <= outputCount; id++) {
+            outputs[id - 1] = getOutput(id);
+        }
+        return outputs;
+    }
+
+    /**
+     * Returns the mask of the outputs whose value changed since the previous call, bit 0 for output 1,
+     * and clears it. The first call returns all outputs.
+     */
+    public int takeChangedOutputs() {
+        return changedOutputs.getAndSet(0);
+    }
+
+    private void markChanged(int mask) {
+        if (mask != 0) {
+            changedOutputs.getAndAccumulate(mask, (current, changed) -> current | changed);
+        }
+    }
+
+    /**
+     * Queries the status of all outputs of the module. The returned future completes once the new
+     * values are stored.
+     */
+    public CompletableFuture<Void> queryStatus() {
+        DobissGateway gateway = this.gateway;
+        if (gateway == null) {
+            return DobissGateway.failed(new IOException("No Dobiss gateway defined for module " + moduleAddress));
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Dobiss {} query send {}", getTypeName(), DobissFrameCodec.toHex(statusFrame));
+        }
+
+        // Status queries are pipelined with the queries of the other modules on the same gateway
+        return gateway.submit(
+                DobissRequest.pipelined(statusFrame, DobissFrameCodec.STATUS_ANSWER_LENGTH, statusDecoder));
+    }
+
+    /**
+     * Stores the output values of a status answer. Runs on the I/O thread, reading the answer in place.
+     * An answer with an impossible output value is rejected as a whole.
+     */
+    private void decodeStatus(ByteBuffer answer) throws IOException {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Dobiss {} query answer {}", getTypeName(), DobissFrameCodec.toHex(answer));
+        }
+
+        DobissFrameCodec.checkOutputs(answer, outputCount, getMaxValue());
+
+        markChanged(storeOutputs(answer));
+    }
+
+    /**
+     * Sends a new value for one output of the module. The returned future completes once the Dobiss
+     * gateway acknowledged the command.
+     */
+    public CompletableFuture<Void> sendCommand(int id, int value) {
+        DobissGateway gateway = this.gateway;
+        if (gateway == null) {
+            return DobissGateway.failed(new IOException("No Dobiss gateway defined for module " + moduleAddress));
+        }
+
+        DobissRequest request = new DobissRequest(commandFrames(id, value),
+                new int[] { DobissFrameCodec.HEADER_ANSWER_LENGTH, DobissFrameCodec.COMMAND_ANSWER_LENGTH },
+                this::logCommandAnswer);
+        return submitCommand(gateway, id, request).thenRun(() -> applyCommand(id, value));
+    }
+
+    /**
+     * Queues a command request on the gateway.
+     */
+    protected CompletableFuture<Void> submitCommand(DobissGateway gateway, int id, DobissRequest request) {
+        return gateway.submit(request);
+    }
+
+    /**
+     * Builds the frames that set one output of the module: the header followed by the command itself.
+     */
+    byte[][] commandFrames(int id, int value) {
+        byte[] command = command(moduleAddress, id, value);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Dobiss {} command send {} {}", getTypeName(), DobissFrameCodec.toHex(headerFrame),
+                    DobissFrameCodec.toHex(command));
+        }
+
+        return new byte[][] { headerFrame, command };
+    }
+
+    private void logCommandAnswer(ByteBuffer answer) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Dobiss {} command answer {}", getTypeName(), DobissFrameCodec.toHex(answer));
+        }
+    }
+
+    /**
+     * Stores the new value of one output once the gateway acknowledged the command.
+     */
+    void applyCommand(int id, int value) {
+        if (id < 1 || id > outputCount) {
+            logger.debug("Wrong internal id {} for Dobiss {}.", id, getTypeName());
+            return;
+        }
+        if (storeOutput(id, value)) {
+            markChanged(1 << (id - 1));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dobiss.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link DobissPollSchedule} decides when each module of a thing is polled next. A module is polled
+ * at the active interval for a while after a command was sent to it or one of its outputs changed. After
+ * that window the interval doubles with every quiet poll until it is back at the idle interval.
+ *
+ * Modules are identified by their index in the module list of the thing. All times are in ms.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public class DobissPollSchedule {
+
+    private final long activeInterval;
+
+    private final long idleInterval;
+
+    private final long activeWindow;
+
+    // Per module: time of the next poll, current interval and end of the active window
+    private final long[] nextPoll;
+    private final long[] interval;
+    private final long[] activeUntil;
+
+    public DobissPollSchedule(int moduleCount, long activeInterval, long idleInterval, long activeWindow) {
+        this.activeInterval = activeInterval;
+        this.idleInterval = Math.max(idleInterval, activeInterval);
+        this.activeWindow = activeWindow;
+        this.nextPoll = new long[moduleCount];
+        this.interval = new long[moduleCount];
+        this.activeUntil = new long[moduleCount];
+        for (int module = 0; module < moduleCount; module++) {
+            interval[module] = this.idleInterval;
+        }
+    }
+
+    /**
+     * Returns the shortest time between two polls of a module, at which the schedule needs to be checked.
+     */
+    public long getActiveInterval() {
+        return activeInterval;
+    }
+
+    public synchronized boolean isDue(int module, long now) {
+        return now >= nextPoll[module];
+    }
+
+    /**
+     * Records that a poll of the module was started and schedules the next one.
+     */
+    public synchronized void polled(int module, long now) {
+        if (now >= activeUntil[module] && interval[module] < idleInterval) {
+            interval[module] = Math.min(interval[module] * 2, idleInterval);
+        }
+        nextPoll[module] = now + interval[module];
+    }
+
+    /**
+     * Records activity on the module: it is polled at the active interval for the active window.
+     */
+    public synchronized void activity(int module, long now) {
+        activeUntil[module] = now + activeWindow;
+        interval[module] = activeInterval;
+        nextPoll[module] = Math.min(nextPoll[module], now + activeInterval);
+    }
+}
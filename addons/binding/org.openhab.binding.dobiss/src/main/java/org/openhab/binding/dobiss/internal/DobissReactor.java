@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dobiss.internal;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link DobissReactor} runs the single I/O thread that drives the connections of all Dobiss
+ * gateways through one {@link Selector}. Gateways never block the threads that submit requests to them;
+ * all socket work happens on this thread.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public class DobissReactor implements Runnable {
+
+    // Maximum time in ms the selector waits, so that request deadlines are checked regularly
+    private static final long SELECT_TIMEOUT = 50;
+
+    @Nullable
+    private static DobissReactor instance;
+
+    private final Logger logger = LoggerFactory.getLogger(DobissReactor.class);
+
+    private final Selector selector;
+
+    private final Thread thread;
+
+    // Gateways that have new requests or need to be closed
+    private final Queue<DobissGateway> pendingGateways = new ConcurrentLinkedQueue<>();
+
+    // All gateways served by this reactor, checked for expired requests
+    private final Set<DobissGateway> gateways = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean running = true;
+
+    private DobissReactor() throws IOException {
+        selector = Selector.open();
+        thread = new Thread(this, "OH-binding-dobiss-io");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Returns the running reactor, starting it when needed.
+     */
+    static synchronized DobissReactor getInstance() throws IOException {
+        DobissReactor reactor = instance;
+        if (reactor == null) {
+            reactor = new DobissReactor();
+            reactor.thread.start();
+            instance = reactor;
+        }
+        return reactor;
+    }
+
+    /**
+     * Stops the reactor thread; called when the last gateway is released.
+     */
+    static synchronized void shutdown() {
+        DobissReactor reactor = instance;
+        instance = null;
+        if (reactor != null) {
+            reactor.running = false;
+            reactor.selector.wakeup();
+        }
+    }
+
+    Selector getSelector() {
+        return selector;
+    }
+
+    void register(DobissGateway gateway) {
+        gateways.add(gateway);
+    }
+
+    /**
+     * Asks the I/O thread to look at the given gateway, e.g. because a request was queued.
+     */
+    void schedule(DobissGateway gateway) {
+        pendingGateways.add(gateway);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        logger.debug("Dobiss I/O thread started");
+
+        while (running) {
+            try {
+                selector.select(SELECT_TIMEOUT);
+
+                DobissGateway gateway;
+                while ((gateway = pendingGateways.poll()) != null) {
+                    gateway.process();
+                    if (gateway.isClosed()) {
+                        gateways.remove(gateway);
+                    }
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    Object attachment = key.attachment();
+                    if (attachment instanceof DobissGateway) {
+                        ((DobissGateway) attachment).handle(key);
+                    }
+                }
+
+                long now = System.currentTimeMillis();
+                for (DobissGateway g : gateways) {
+                    g.checkDeadline(now);
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Unexpected error in Dobiss I/O thread: {}", e.getMessage(), e);
+            }
+        }
+
+        for (DobissGateway g : gateways) {
+            g.close();
+        }
+        gateways.clear();
+
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.debug("Error closing Dobiss selector: {}", e.getMessage());
+        }
+
+        logger.debug("Dobiss I/O thread stopped");
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dobiss.internal;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The {@link DobissRequest} is one exchange with a Dobiss gateway: a sequence of frames, each followed
+ * by an answer of known length. The frames of one request are never interleaved with other requests.
+ *
+ * The answer to the last frame is handed to the decoder of the request on the I/O thread, in the buffer
+ * it was received in; the buffer is reused afterwards, so the decoder must not keep it. The future
+ * completes after the decoder ran.
+ *
+ * A pipelined request has a single frame and may be written while earlier pipelined requests still wait
+ * for their answer.
+ * Pipelined requests are background status queries; requests that are not pipelined are commands and
+ * are sent before any pipelined request that is still queued.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public class DobissRequest {
+
+    final byte[][] frames;
+
+    final int[] answerLengths;
+
+    final boolean pipelined;
+
+    @Nullable
+    final DobissAnswerDecoder decoder;
+
+    final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    // Number of times this request was started on a connection
+    int attempts;
+
+    public DobissRequest(byte[] frame, int answerLength, @Nullable DobissAnswerDecoder decoder) {
+        this(new byte[][] { frame }, new int[] { answerLength }, false, decoder);
+    }
+
+    public DobissRequest(byte[][] frames, int[] answerLengths, @Nullable DobissAnswerDecoder decoder) {
+        this(frames, answerLengths, false, decoder);
+    }
+
+    private DobissRequest(byte[][] frames, int[] answerLengths, boolean pipelined,
+            @Nullable DobissAnswerDecoder decoder) {
+        if (frames.length == 0 || frames.length != answerLengths.length) {
+            throw new IllegalArgumentException("Every frame of a Dobiss request needs an answer length");
+        }
+        for (int answerLength : answerLengths) {
+            if (answerLength > DobissFrameCodec.MAX_ANSWER_LENGTH) {
+                throw new IllegalArgumentException("Dobiss answers are at most "
+                        + DobissFrameCodec.MAX_ANSWER_LENGTH + " bytes long");
+            }
+        }
+        this.frames = frames;
+        this.answerLengths = answerLengths;
+        this.pipelined = pipelined;
+        this.decoder = decoder;
+    }
+
+    /**
+     * Creates a single frame request that can be pipelined with other pipelined requests.
+     */
+    public static DobissRequest pipelined(byte[] frame, int answerLength, @Nullable DobissAnswerDecoder decoder) {
+        return new DobissRequest(new byte[][] { frame }, new int[] { answerLength }, true, decoder);
+    }
+
+    public CompletableFuture<Void> getFuture() {
+        return future;
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dobiss.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link DobissScene} collects the commands for many outputs, possibly on different modules, and sends
+ * them to the gateway as one request. The frames of all commands are written back to back on the gateway
+ * connection, without poll cycles or other commands in between.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public class DobissScene {
+
+    private final List<byte[]> frames = new ArrayList<>();
+
+    private final List<Runnable> updates = new ArrayList<>();
+
+    /**
+     * Adds a new value for one output of a relay or dimmer module.
+     */
+    public DobissScene add(DobissModule module, int id, int value) {
+        for (byte[] frame : module.commandFrames(id, value)) {
+            frames.add(frame);
+        }
+        updates.add(() -> module.applyCommand(id, value));
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return frames.isEmpty();
+    }
+
+    /**
+     * Sends all commands of the scene. The returned future completes once the gateway acknowledged the
+     * last command; the new output values are only stored when all commands succeeded.
+     */
+    public CompletableFuture<Void> send(DobissGateway gateway) {
+        if (frames.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Every command is a header answered with a short frame, followed by the command itself
+        int[] answerLengths = new int[frames.size()];
+        for (int i = 0; i < answerLengths.length; i++) {
+            answerLengths[i] = (i % 2 == 0) ? DobissFrameCodec.HEADER_ANSWER_LENGTH
+                    : DobissFrameCodec.COMMAND_ANSWER_LENGTH;
+        }
+
+        DobissRequest request = new DobissRequest(frames.toArray(new byte[frames.size()][]), answerLengths, null);
+        return gateway.submit(request).thenRun(() -> {
+            for (Runnable update : updates) {
+                update.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dobiss.service;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link DobissGatewayService} gives other bundles access to Dobiss IP interfaces. The service owns one
+ * connection per ip address and queues the requests of all its users on it, so bundles sharing a Dobiss
+ * installation do not need to coordinate among each other.
+ *
+ * Requests never block; the returned futures complete once the gateway answered, or exceptionally with an
+ * {@link IOException} when the gateway could not be reached.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public interface DobissGatewayService {
+
+    /**
+     * Starts using the gateway at the given ip address. Every successful call must be matched by a call to
+     * {@link #release(String)}.
+     */
+    void acquire(String ipAddress) throws IOException;
+
+    /**
+     * Stops using the gateway at the given ip address. The connection is closed when no user is left.
+     */
+    void release(String ipAddress);
+
+    /**
+     * Queries the 12 outputs of a relay module; every value is 0 (off) or 1 (on).
+     */
+    CompletableFuture<int[]> queryRelay(String ipAddress, int moduleAddress);
+
+    /**
+     * Switches one output (1 to 12) of a relay module on (1) or off (0).
+     */
+    CompletableFuture<Void> sendRelayCommand(String ipAddress, int moduleAddress, int id, int onOff);
+
+    /**
+     * Queries the 4 outputs of a dimmer module; every value is a percentage from 0 to 100.
+     */
+    CompletableFuture<int[]> queryDimmer(String ipAddress, int moduleAddress);
+
+    /**
+     * Sets one output (1 to 4) of a dimmer module to a percentage. A newer value for the same output
+     * replaces a value that is not sent yet.
+     */
+    CompletableFuture<Void> sendDimmerCommand(String ipAddress, int moduleAddress, int id, int dimmerValue);
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) 2014,2018 by the respective copyright holders.
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dobiss.service;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.PercentType;
+import org.eclipse.smarthome.core.types.State;
+
+/**
+ * The {@link DobissStates} turns output values of Dobiss modules into channel states. Every possible state
+ * is created once, so publishing a value neither allocates nor formats or parses a string.
+ *
+ * @author Bjorn Aelvoet - Initial contribution
+ */
+@NonNullByDefault
+public final class DobissStates {
+
+    // State of every dimmer value from 0 to 100
+    private static final PercentType[] DIMMER_STATES = new PercentType[101];
+
+    static {
+        for (int value = 0; value < DIMMER_STATES.length; value++) {
+            DIMMER_STATES[value] = new PercentType(value);
+        }
+    }
+
+    private DobissStates() {
+    }
+
+    /**
+     * Returns the state of a relay output: 0 is off, any other value is on.
+     */
+    public static State relay(int value) {
+        return value == 0 ? OnOffType.OFF : OnOffType.ON;
+    }
+
+    /**
+     * Returns the state of a dimmer output, a percentage; values outside 0 to 100 are clipped.
+     */
+    public static PercentType dimmer(int value) {
+        return DIMMER_STATES[Math.max(0, Math.min(value, DIMMER_STATES.length - 1))];
+    }
+}
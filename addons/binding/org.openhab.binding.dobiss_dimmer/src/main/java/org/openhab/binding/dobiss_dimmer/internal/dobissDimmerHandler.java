@@ -14,20 +14,16 @@ package org.openhab.binding.dobiss_dimmer.internal;
 
 import static org.openhab.binding.dobiss_dimmer.internal.dobissDimmerBindingConstants.*;
 
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
-import java.net.Socket;
-import java.net.UnknownHostException;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
-import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.lang.StringUtils;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
-import org.eclipse.smarthome.core.library.types.PercentType;
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.eclipse.smarthome.core.thing.Channel;
 import org.eclipse.smarthome.core.thing.ChannelUID;
 import org.eclipse.smarthome.core.thing.Thing;
@@ -36,11 +32,11 @@ import org.eclipse.smarthome.core.thing.ThingStatusDetail;
 import org.eclipse.smarthome.core.thing.binding.BaseThingHandler;
 import org.eclipse.smarthome.core.types.Command;
 import org.eclipse.smarthome.core.types.RefreshType;
+import org.openhab.binding.dobiss.service.DobissGatewayService;
+import org.openhab.binding.dobiss.service.DobissStates;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import be.aelvoetnet.dobissmutex.DobissMutex;
-
 /**
  * The {@link dobissDimmerHandler} is responsible for handling commands, which are
  * sent to one of the channels.
@@ -52,17 +48,12 @@ public class dobissDimmerHandler extends BaseThingHandler {
 
     private final Logger logger = LoggerFactory.getLogger(dobissDimmerHandler.class);
 
-    // private FileMutex mutex = new FileMutex(Paths.get(System.getProperty("user.home"), ".dobiss.openhab.lock"));
-    //
-    //// Blocking for 100 ms
-    // private long mutex_timeout = 100;
-
     @Nullable
     private dobissDimmerConfiguration config;
 
-    // Timer for pushing the updates of the HCV5 to the UI
+    // Job pushing the updates of the module to the UI
     @Nullable
-    Timer timer;
+    private ScheduledFuture<?> pollingJob;
 
     @Nullable
     private String ipAddress = null;
@@ -71,7 +62,11 @@ public class dobissDimmerHandler extends BaseThingHandler {
     private int pollingDelay = 1000;
     private int address;
 
-    private int portNumber = 1001;
+    // Shared access to the Dobiss IP interfaces, provided by the Dobiss binding
+    private final DobissGatewayService gatewayService;
+
+    // Whether the gateway of the ip address is acquired from the gateway service
+    private volatile boolean acquired;
 
     // Dimmer so value between 0 and 100
     private int id01 = 0;
@@ -79,10 +74,11 @@ public class dobissDimmerHandler extends BaseThingHandler {
     private int id03 = 0;
     private int id04 = 0;
 
-    public dobissDimmerHandler(Thing thing) {
+    public dobissDimmerHandler(Thing thing, DobissGatewayService gatewayService) {
         super(thing);
 
         this.thing = thing;
+        this.gatewayService = gatewayService;
     }
 
     @Override
@@ -113,19 +109,19 @@ public class dobissDimmerHandler extends BaseThingHandler {
             switch (id) {
                 case 1:
                     logger.debug("Dobiss dimmer value for id01 {}", id01);
-                    updateState(CHANNEL_DOBISS_DIMMER_ID_1, PercentType.valueOf(Integer.toString(id01)));
+                    updateState(CHANNEL_DOBISS_DIMMER_ID_1, DobissStates.dimmer(id01));
                     break;
                 case 2:
                     logger.debug("Dobiss dimmer value for id02 {}", id02);
-                    updateState(CHANNEL_DOBISS_DIMMER_ID_2, PercentType.valueOf(Integer.toString(id02)));
+                    updateState(CHANNEL_DOBISS_DIMMER_ID_2, DobissStates.dimmer(id02));
                     break;
                 case 3:
                     logger.debug("Dobiss dimmer value for id03 {}", id03);
-                    updateState(CHANNEL_DOBISS_DIMMER_ID_3, PercentType.valueOf(Integer.toString(id03)));
+                    updateState(CHANNEL_DOBISS_DIMMER_ID_3, DobissStates.dimmer(id03));
                     break;
                 case 4:
                     logger.debug("Dobiss dimmer value for id04 {}", id04);
-                    updateState(CHANNEL_DOBISS_DIMMER_ID_4, PercentType.valueOf(Integer.toString(id04)));
+                    updateState(CHANNEL_DOBISS_DIMMER_ID_4, DobissStates.dimmer(id04));
                     break;
                 default:
                     logger.debug("Command {} not implemented for thing {}", command, thing.getUID());
@@ -143,87 +139,36 @@ public class dobissDimmerHandler extends BaseThingHandler {
     }
 
     private void sendDobissDimmer(int id, int dimmerValue) {
-
-        // Send dobiss dimmer module for new state of dimmer
-
-        Socket socket;
-        try {
-            // mutex.lock(mutex_timeout);
-            DobissMutex.lock();
-
-            socket = new Socket(ipAddress, portNumber);
-
-            DataOutputStream os = new DataOutputStream(socket.getOutputStream());
-            DataInputStream is = new DataInputStream(socket.getInputStream());
-            // Write header first
-            // Dimmer type = 0x10 = 16
-            byte bin[] = new byte[] { -81, 2, -1, (byte) address, 0, 0, 8, 1, 8, -1, -1, -1, -1, -1, -1, -81 };
-            byte bout[] = new byte[1024];
-            os.write(bin);
-            logger.debug("Dobiss dimmer header send {}", Hex.encodeHexString(bin));
-
-            is.read(bout, 0, 32);
-            logger.debug("Dobiss dimmer header answer {}", Hex.encodeHexString(bout));
-
-            byte bin2[] = new byte[] { (byte) address, (byte) (id - 1), 1, -1, -1, (byte) dimmerValue, -1, -1 };
-            byte bout2[] = new byte[1024];
-            os.write(bin2);
-            logger.debug("Dobiss dimmer command send {}", Hex.encodeHexString(bin2));
-
-            is.read(bout2, 0, 64);
-            logger.debug("Dobiss dimmer command answer {}", Hex.encodeHexString(bout2));
-
-            os.close();
-            is.close();
-            socket.close();
-
-            switch (id) {
-                case 1:
-                    id01 = dimmerValue;
-                    break;
-                case 2:
-                    id02 = dimmerValue;
-                    break;
-                case 3:
-                    id03 = dimmerValue;
-                    break;
-                case 4:
-                    id04 = dimmerValue;
-                    break;
-                default:
-                    logger.debug("Wrong internal id for Dobiss dimmer.");
-
-            }
-
-        } catch (UnknownHostException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-
-            logger.debug("Communication to Dobiss dimmer unit failed!");
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
-                    "Unable to communicate with Dobiss dimmer unit");
-
-        } catch (IOException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-
-            logger.debug("Communication to Dobiss dimmer unit failed!");
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
-                    "Unable to communicate with Dobiss dimer unit");
-
-        } catch (InterruptedException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-
-            logger.debug("Communication to Dobiss dimmer unit failed!");
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
-                    "Unable to communicate with Dobiss dimer unit");
-
-        } finally {
-            // mutex.unlock();
-            DobissMutex.unlock();
+        String ipAddress = this.ipAddress;
+        if (ipAddress == null) {
+            return;
         }
 
+        // The gateway service queues the command, so the calling thread does not wait for the tcp communication
+        gatewayService.sendDimmerCommand(ipAddress, address, id, dimmerValue).whenComplete((result, e) -> {
+            if (e != null) {
+                logger.debug("Communication to Dobiss dimmer unit failed!");
+                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
+                        "Unable to communicate with Dobiss dimmer unit");
+            } else {
+                switch (id) {
+                    case 1:
+                        id01 = dimmerValue;
+                        break;
+                    case 2:
+                        id02 = dimmerValue;
+                        break;
+                    case 3:
+                        id03 = dimmerValue;
+                        break;
+                    case 4:
+                        id04 = dimmerValue;
+                        break;
+                    default:
+                        logger.debug("Wrong internal id for Dobiss dimmer.");
+                }
+            }
+        });
     }
 
     @SuppressWarnings("null")
@@ -262,133 +207,79 @@ public class dobissDimmerHandler extends BaseThingHandler {
         }
         address = config.address;
 
-        // Check if dobiss dimmer module can be reached
-        Socket socket;
         try {
-            // mutex.lock(mutex_timeout);
-            DobissMutex.lock();
-
-            socket = new Socket(ipAddress, portNumber);
-
-            DataOutputStream os = new DataOutputStream(socket.getOutputStream());
-            DataInputStream is = new DataInputStream(socket.getInputStream());
-            // Write query of status of the dimmer
-            byte bin[] = new byte[] { -81, 1, -1, (byte) address, 0, 0, 0, 1, 0, -1, -1, -1, -1, -1, -1, -81 };
-            byte bout[] = new byte[1024];
-            os.write(bin);
-            logger.debug("Dobiss dimmer query send {}", Hex.encodeHexString(bin));
-
-            is.read(bout);
-            logger.debug("Dobiss dimmer query answer {}", Hex.encodeHexString(bout));
-
-            updateStatus(ThingStatus.ONLINE);
-
-            id01 = bout[32];
-            logger.debug("Dobiss dimmer query answer for id01 {}", bout[32]);
-            id02 = bout[33];
-            logger.debug("Dobiss dimmer query answer for id01 {}", bout[32]);
-            id03 = bout[34];
-            logger.debug("Dobiss dimmer query answer for id01 {}", bout[32]);
-            id04 = bout[35];
-            logger.debug("Dobiss dimmer query answer for id01 {}", bout[32]);
-
-            os.close();
-            is.close();
-            socket.close();
-
-        } catch (UnknownHostException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-
-            logger.debug("Communication to Dobiss dimmer unit failed!");
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
-                    "Unable to communicate with Dobiss dimmer unit");
-
+            gatewayService.acquire(ipAddress);
         } catch (IOException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-
-            logger.debug("Communication to Dobiss dimmer unit failed!");
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
-                    "Unable to communicate with Dobiss dimmer unit");
-
-        } catch (InterruptedException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-
-            logger.debug("Communication to Dobiss dimmer unit failed!");
+            logger.debug("Unable to start Dobiss communication: {}", e.getMessage());
             updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
-                    "Unable to communicate with Dobiss dimmer unit");
-        } finally {
-            // mutex.unlock();
-            DobissMutex.unlock();
+                    "Unable to start Dobiss communication");
+            return;
         }
+        acquired = true;
+
+        // The module is queried in the background, the thing goes online with the answer
+        updateStatus(ThingStatus.UNKNOWN);
+        queryDimmer();
 
         // Starting UI pushing
         startAutomaticRefresh();
 
     }
 
-    private void queryDobissDimmer() {
+    /**
+     * Queries the outputs of the module through the gateway service without waiting for the answer. When it
+     * arrives the thing goes online and the linked channels are updated; when the module does not answer the
+     * thing goes offline.
+     */
+    private void queryDimmer() {
+        String ipAddress = this.ipAddress;
+        if (ipAddress == null) {
+            return;
+        }
 
-        // Query dobiss dimmer module for status of the individual dimmers
-        Socket socket;
-        try {
-            // mutex.lock(mutex_timeout);
-            DobissMutex.lock();
-
-            socket = new Socket(ipAddress, portNumber);
-
-            DataOutputStream os = new DataOutputStream(socket.getOutputStream());
-            DataInputStream is = new DataInputStream(socket.getInputStream());
-            // Write query of status of the dimmer
-            byte bin[] = new byte[] { -81, 1, -1, (byte) address, 0, 0, 0, 1, 0, -1, -1, -1, -1, -1, -1, -81 };
-            byte bout[] = new byte[1024];
-            os.write(bin);
-            logger.debug("Dobiss dimmer query send {}", Hex.encodeHexString(bin));
-
-            is.read(bout, 0, 64);
-            logger.debug("Dobiss dimmer query answer {}", Hex.encodeHexString(bout));
-
-            id01 = bout[32];
-            logger.debug("Dobiss dimmer query answer for id01 {}", bout[32]);
-            id02 = bout[33];
-            logger.debug("Dobiss dimmer query answer for id02 {}", bout[33]);
-            id03 = bout[34];
-            logger.debug("Dobiss dimmer query answer for id03 {}", bout[34]);
-            id04 = bout[35];
-            logger.debug("Dobiss dimmer query answer for id04 {}", bout[35]);
-
-            os.close();
-            is.close();
-            socket.close();
-
-        } catch (UnknownHostException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-
-            logger.debug("Communication to Dobiss dimmer unit failed!");
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
-                    "Unable to communicate with Dobiss dimmer unit");
+        gatewayService.queryDimmer(ipAddress, address).whenComplete((outputs, e) -> {
+            // Answers that arrive after the handler was disposed are ignored
+            if (!acquired) {
+                return;
+            }
+            if (e != null) {
+                logger.debug("Communication to Dobiss dimmer unit failed!");
+                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
+                        "Unable to communicate with Dobiss dimmer unit");
+                return;
+            }
 
-        } catch (IOException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
+            id01 = outputs[0];
+            logger.debug("Dobiss dimmer query answer for id01 {}", id01);
+            id02 = outputs[1];
+            logger.debug("Dobiss dimmer query answer for id02 {}", id02);
+            id03 = outputs[2];
+            logger.debug("Dobiss dimmer query answer for id03 {}", id03);
+            id04 = outputs[3];
+            logger.debug("Dobiss dimmer query answer for id04 {}", id04);
+
+            if (getThing().getStatus() != ThingStatus.ONLINE) {
+                updateStatus(ThingStatus.ONLINE);
+            }
+            publishValues();
+        });
+    }
 
-            logger.debug("Communication to Dobiss dimmer unit failed!");
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
-                    "Unable to communicate with Dobiss dimmer unit");
-        } catch (InterruptedException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
+    @Override
+    public void dispose() {
+        ScheduledFuture<?> pollingJob = this.pollingJob;
+        if (pollingJob != null) {
+            pollingJob.cancel(false);
+            this.pollingJob = null;
+        }
 
-            logger.debug("Communication to Dobiss dimmer unit failed!");
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
-                    "Unable to communicate with Dobiss dimmer unit");
-        } finally {
-            // mutex.unlock();
-            DobissMutex.unlock();
+        String ipAddress = this.ipAddress;
+        if (acquired && ipAddress != null) {
+            gatewayService.release(ipAddress);
+            acquired = false;
         }
+
+        super.dispose();
     }
 
     private void publishValue(ChannelUID channelUID) {
@@ -397,19 +288,19 @@ public class dobissDimmerHandler extends BaseThingHandler {
         String channelID = channelUID.getId();
         switch (channelID) {
             case CHANNEL_DOBISS_DIMMER_ID_1:
-                updateState(CHANNEL_DOBISS_DIMMER_ID_1, PercentType.valueOf(Integer.toString(id01)));
+                updateState(CHANNEL_DOBISS_DIMMER_ID_1, DobissStates.dimmer(id01));
                 logger.debug("Update status for id01 {}", id01);
                 break;
             case CHANNEL_DOBISS_DIMMER_ID_2:
-                updateState(CHANNEL_DOBISS_DIMMER_ID_2, PercentType.valueOf(Integer.toString(id02)));
+                updateState(CHANNEL_DOBISS_DIMMER_ID_2, DobissStates.dimmer(id02));
                 logger.debug("Update status for id02 {}", id02);
                 break;
             case CHANNEL_DOBISS_DIMMER_ID_3:
-                updateState(CHANNEL_DOBISS_DIMMER_ID_3, PercentType.valueOf(Integer.toString(id03)));
+                updateState(CHANNEL_DOBISS_DIMMER_ID_3, DobissStates.dimmer(id03));
                 logger.debug("Update status for id03 {}", id03);
                 break;
             case CHANNEL_DOBISS_DIMMER_ID_4:
-                updateState(CHANNEL_DOBISS_DIMMER_ID_4, PercentType.valueOf(Integer.toString(id04)));
+                updateState(CHANNEL_DOBISS_DIMMER_ID_4, DobissStates.dimmer(id04));
                 logger.debug("Update status for id04 {}", id04);
                 break;
             default:
@@ -421,27 +312,29 @@ public class dobissDimmerHandler extends BaseThingHandler {
     private void startAutomaticRefresh() {
         logger.debug("Starting automatic refresh");
 
-        timer = new Timer();
-        timer.scheduleAtFixedRate(new PeriodicTask(), pollingDelay, pollingInterval * 1000);
+        long interval = pollingInterval * 1000L;
+        long delay = pollingDelay + ThreadLocalRandom.current().nextLong(interval);
+        pollingJob = ThreadPoolManager.getScheduledPool(THREAD_POOL_NAME).scheduleAtFixedRate(this::poll, delay,
+                interval, TimeUnit.MILLISECONDS);
 
         logger.debug("Start automatic refresh every {} seconds", pollingInterval);
     }
 
-    class PeriodicTask extends TimerTask {
-
-        @Override
-        public void run() {
-
-            queryDobissDimmer();
+    private void poll() {
+        try {
+            // Query dobiss dimmer module for status of the individual dimmer outputs
+            queryDimmer();
+        } catch (RuntimeException e) {
+            logger.warn("Unexpected error while polling {}", thing.getUID(), e);
+        }
+    }
 
-            List<Channel> channels = getThing().getChannels();
-            for (Channel channel : channels) {
-                if (isLinked(channel.getUID().getId())) {
-                    publishValue(channel.getUID());
-                }
+    private void publishValues() {
+        List<Channel> channels = getThing().getChannels();
+        for (Channel channel : channels) {
+            if (isLinked(channel.getUID().getId())) {
+                publishValue(channel.getUID());
             }
-
         }
-
     }
 }
@@ -21,7 +21,9 @@ import org.eclipse.smarthome.core.thing.ThingTypeUID;
 import org.eclipse.smarthome.core.thing.binding.BaseThingHandlerFactory;
 import org.eclipse.smarthome.core.thing.binding.ThingHandler;
 import org.eclipse.smarthome.core.thing.binding.ThingHandlerFactory;
+import org.openhab.binding.dobiss.service.DobissGatewayService;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
 
 /**
  * The {@link dobissDimmerHandlerFactory} is responsible for creating things and thing
@@ -33,6 +35,8 @@ import org.osgi.service.component.annotations.Component;
 @Component(configurationPid = "binding.dobiss_dimmer", service = ThingHandlerFactory.class)
 public class dobissDimmerHandlerFactory extends BaseThingHandlerFactory {
 
+    private @NonNullByDefault({}) DobissGatewayService gatewayService;
+
     @Override
     public boolean supportsThingType(ThingTypeUID thingTypeUID) {
         return SUPPORTED_THING_TYPES_UIDS.contains(thingTypeUID);
@@ -43,9 +47,18 @@ public class dobissDimmerHandlerFactory extends BaseThingHandlerFactory {
         ThingTypeUID thingTypeUID = thing.getThingTypeUID();
 
         if (THING_TYPE_DOBISS_DIMMER.equals(thingTypeUID)) {
-            return new dobissDimmerHandler(thing);
+            return new dobissDimmerHandler(thing, gatewayService);
         }
 
         return null;
     }
+
+    @Reference
+    protected void setDobissGatewayService(DobissGatewayService gatewayService) {
+        this.gatewayService = gatewayService;
+    }
+
+    protected void unsetDobissGatewayService(DobissGatewayService gatewayService) {
+        this.gatewayService = null;
+    }
 }
@@ -30,6 +30,9 @@ public class dobissRelayBindingConstants {
 
     private static final String BINDING_ID = "dobiss_relay";
 
+    // Name of the thread pool shared by the periodic jobs of all things of the binding
+    public static final String THREAD_POOL_NAME = BINDING_ID;
+
     // List of all Thing Type UIDs
     public static final ThingTypeUID THING_TYPE_DOBISS_RELAY = new ThingTypeUID(BINDING_ID, "relay");
 
@@ -14,20 +14,17 @@ package org.openhab.binding.dobiss_relay.internal;
 
 import static org.openhab.binding.dobiss_relay.internal.dobissRelayBindingConstants.*;
 
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
-import java.net.Socket;
-import java.net.UnknownHostException;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
-import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.lang.StringUtils;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
-import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
+import org.eclipse.smarthome.core.library.types.OnOffType;
 import org.eclipse.smarthome.core.thing.Channel;
 import org.eclipse.smarthome.core.thing.ChannelUID;
 import org.eclipse.smarthome.core.thing.Thing;
@@ -36,11 +33,11 @@ import org.eclipse.smarthome.core.thing.ThingStatusDetail;
 import org.eclipse.smarthome.core.thing.binding.BaseThingHandler;
 import org.eclipse.smarthome.core.types.Command;
 import org.eclipse.smarthome.core.types.RefreshType;
+import org.openhab.binding.dobiss.service.DobissGatewayService;
+import org.openhab.binding.dobiss.service.DobissStates;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import be.aelvoetnet.dobissmutex.DobissMutex;
-
 /**
  * The {@link dobissRelayHandler} is responsible for handling commands, which are
  * sent to one of the channels.
@@ -52,16 +49,12 @@ public class dobissRelayHandler extends BaseThingHandler {
 
     private final Logger logger = LoggerFactory.getLogger(dobissRelayHandler.class);
 
-    // private FileMutex mutex = new FileMutex(Paths.get(System.getProperty("user.home"), ".dobiss.openhab.lock"));
-    // // Blocking for 100 ms
-    // private long mutex_timeout = 100;
-
     @Nullable
     private dobissRelayConfiguration config;
 
-    // Timer for pushing the updates of the HCV5 to the UI
+    // Job pushing the updates of the module to the UI
     @Nullable
-    Timer timer;
+    private ScheduledFuture<?> pollingJob;
 
     @Nullable
     private String ipAddress = null;
@@ -70,7 +63,11 @@ public class dobissRelayHandler extends BaseThingHandler {
     private int pollingDelay = 1000;
     private int address;
 
-    private int portNumber = 1001;
+    // Shared access to the Dobiss IP interfaces, provided by the Dobiss binding
+    private final DobissGatewayService gatewayService;
+
+    // Whether the gateway of the ip address is acquired from the gateway service
+    private volatile boolean acquired;
 
     private int id01;
     private int id02;
@@ -85,10 +82,11 @@ public class dobissRelayHandler extends BaseThingHandler {
     private int id11;
     private int id12;
 
-    public dobissRelayHandler(Thing thing) {
+    public dobissRelayHandler(Thing thing, DobissGatewayService gatewayService) {
         super(thing);
 
         this.thing = thing;
+        this.gatewayService = gatewayService;
     }
 
     @Override
@@ -134,40 +132,40 @@ public class dobissRelayHandler extends BaseThingHandler {
         if (command instanceof RefreshType) {
             switch (id) {
                 case 1:
-                    updateState(CHANNEL_DOBISS_RELAY_ID_1, DecimalType.valueOf(Integer.toString(id01)));
+                    updateState(CHANNEL_DOBISS_RELAY_ID_1, DobissStates.relay(id01));
                     break;
                 case 2:
-                    updateState(CHANNEL_DOBISS_RELAY_ID_2, DecimalType.valueOf(Integer.toString(id02)));
+                    updateState(CHANNEL_DOBISS_RELAY_ID_2, DobissStates.relay(id02));
                     break;
                 case 3:
-                    updateState(CHANNEL_DOBISS_RELAY_ID_3, DecimalType.valueOf(Integer.toString(id03)));
+                    updateState(CHANNEL_DOBISS_RELAY_ID_3, DobissStates.relay(id03));
                     break;
                 case 4:
-                    updateState(CHANNEL_DOBISS_RELAY_ID_4, DecimalType.valueOf(Integer.toString(id04)));
+                    updateState(CHANNEL_DOBISS_RELAY_ID_4, DobissStates.relay(id04));
                     break;
                 case 5:
-                    updateState(CHANNEL_DOBISS_RELAY_ID_5, DecimalType.valueOf(Integer.toString(id05)));
+                    updateState(CHANNEL_DOBISS_RELAY_ID_5, DobissStates.relay(id05));
                     break;
                 case 6:
-                    updateState(CHANNEL_DOBISS_RELAY_ID_6, DecimalType.valueOf(Integer.toString(id06)));
+                    updateState(CHANNEL_DOBISS_RELAY_ID_6, DobissStates.relay(id06));
                     break;
                 case 7:
-                    updateState(CHANNEL_DOBISS_RELAY_ID_7, DecimalType.valueOf(Integer.toString(id07)));
+                    updateState(CHANNEL_DOBISS_RELAY_ID_7, DobissStates.relay(id07));
                     break;
                 case 8:
-                    updateState(CHANNEL_DOBISS_RELAY_ID_8, DecimalType.valueOf(Integer.toString(id08)));
+                    updateState(CHANNEL_DOBISS_RELAY_ID_8, DobissStates.relay(id08));
                     break;
                 case 9:
-                    updateState(CHANNEL_DOBISS_RELAY_ID_9, DecimalType.valueOf(Integer.toString(id09)));
+                    updateState(CHANNEL_DOBISS_RELAY_ID_9, DobissStates.relay(id09));
                     break;
                 case 10:
-                    updateState(CHANNEL_DOBISS_RELAY_ID_10, DecimalType.valueOf(Integer.toString(id10)));
+                    updateState(CHANNEL_DOBISS_RELAY_ID_10, DobissStates.relay(id10));
                     break;
                 case 11:
-                    updateState(CHANNEL_DOBISS_RELAY_ID_11, DecimalType.valueOf(Integer.toString(id11)));
+                    updateState(CHANNEL_DOBISS_RELAY_ID_11, DobissStates.relay(id11));
                     break;
                 case 12:
-                    updateState(CHANNEL_DOBISS_RELAY_ID_12, DecimalType.valueOf(Integer.toString(id12)));
+                    updateState(CHANNEL_DOBISS_RELAY_ID_12, DobissStates.relay(id12));
                     break;
                 default:
                     logger.debug("Command {} not implemented for thing {}", command, thing.getUID());
@@ -175,9 +173,9 @@ public class dobissRelayHandler extends BaseThingHandler {
 
         } else {
             // Command must be either ON or OFF
-            if (command.toString().equals("OFF")) {
+            if (command == OnOffType.OFF) {
                 sendDobissRelay(id, 0);
-            } else if (command.toString().equals("ON")) {
+            } else if (command == OnOffType.ON) {
                 sendDobissRelay(id, 1);
             } else {
                 logger.debug("Command {} not implemented for thing {}", command, thing.getUID());
@@ -186,109 +184,60 @@ public class dobissRelayHandler extends BaseThingHandler {
     }
 
     private void sendDobissRelay(int id, int OnOff) {
-
-        // Send dobiss relay module for new state of relay
-
-        Socket socket;
-        try {
-            // mutex.lock(mutex_timeout);
-            DobissMutex.lock();
-
-            socket = new Socket(ipAddress, portNumber);
-
-            DataOutputStream os = new DataOutputStream(socket.getOutputStream());
-            DataInputStream is = new DataInputStream(socket.getInputStream());
-            // Write header first
-            byte bin[] = new byte[] { -81, 2, 4, (byte) address, 0, 0, 8, 1, 8, -1, -1, -1, -1, -1, -1, -81 };
-            byte bout[] = new byte[1024];
-            os.write(bin);
-            logger.debug("Dobiss relay header send {}", Hex.encodeHexString(bin));
-
-            is.read(bout, 0, 32);
-            logger.debug("Dobiss relay header answer {}", Hex.encodeHexString(bout));
-
-            byte bin2[] = new byte[] { (byte) address, (byte) (id - 1), (byte) OnOff, -1, -1, 0x64, -1, -1 };
-            byte bout2[] = new byte[1024];
-            os.write(bin2);
-            logger.debug("Dobiss relay command send {}", Hex.encodeHexString(bin2));
-
-            is.read(bout2, 0, 64);
-            logger.debug("Dobiss relay command answer {}", Hex.encodeHexString(bout2));
-
-            os.close();
-            is.close();
-            socket.close();
-
-            switch (id) {
-                case 1:
-                    id01 = OnOff;
-                    break;
-                case 2:
-                    id02 = OnOff;
-                    break;
-                case 3:
-                    id03 = OnOff;
-                    break;
-                case 4:
-                    id04 = OnOff;
-                    break;
-                case 5:
-                    id05 = OnOff;
-                    break;
-                case 6:
-                    id06 = OnOff;
-                    break;
-                case 7:
-                    id07 = OnOff;
-                    break;
-                case 8:
-                    id08 = OnOff;
-                    break;
-                case 9:
-                    id09 = OnOff;
-                    break;
-                case 10:
-                    id10 = OnOff;
-                    break;
-                case 11:
-                    id11 = OnOff;
-                    break;
-                case 12:
-                    id12 = OnOff;
-                    break;
-                default:
-                    logger.debug("Wrong internal id for Dobiss relay.");
-
-            }
-
-        } catch (UnknownHostException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-
-            logger.debug("Communication to Dobiss relay unit failed!");
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
-                    "Unable to communicate with Dobiss relay unit");
-
-        } catch (IOException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-
-            logger.debug("Communication to Dobiss relay unit failed!");
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
-                    "Unable to communicate with Dobiss relay unit");
-
-        } catch (InterruptedException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-
-            logger.debug("Communication to Dobiss relay unit failed!");
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
-                    "Unable to communicate with Dobiss relay unit");
-        } finally {
-            // mutex.unlock();
-            DobissMutex.unlock();
+        String ipAddress = this.ipAddress;
+        if (ipAddress == null) {
+            return;
         }
 
+        // The gateway service queues the command, so the calling thread does not wait for the tcp communication
+        gatewayService.sendRelayCommand(ipAddress, address, id, OnOff).whenComplete((result, e) -> {
+            if (e != null) {
+                logger.debug("Communication to Dobiss relay unit failed!");
+                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
+                        "Unable to communicate with Dobiss relay unit");
+            } else {
+                switch (id) {
+                    case 1:
+                        id01 = OnOff;
+                        break;
+                    case 2:
+                        id02 = OnOff;
+                        break;
+                    case 3:
+                        id03 = OnOff;
+                        break;
+                    case 4:
+                        id04 = OnOff;
+                        break;
+                    case 5:
+                        id05 = OnOff;
+                        break;
+                    case 6:
+                        id06 = OnOff;
+                        break;
+                    case 7:
+                        id07 = OnOff;
+                        break;
+                    case 8:
+                        id08 = OnOff;
+                        break;
+                    case 9:
+                        id09 = OnOff;
+                        break;
+                    case 10:
+                        id10 = OnOff;
+                        break;
+                    case 11:
+                        id11 = OnOff;
+                        break;
+                    case 12:
+                        id12 = OnOff;
+                        break;
+                    default:
+                        logger.debug("Wrong internal id for Dobiss relay.");
+                }
+            }
+        });
     }
 
     @SuppressWarnings("null")
@@ -327,152 +276,95 @@ public class dobissRelayHandler extends BaseThingHandler {
         }
         address = config.address;
 
-        // Check if dobiss relay module can be reached
-        Socket socket;
         try {
-            // mutex.lock(mutex_timeout);
-            DobissMutex.lock();
-            socket = new Socket(ipAddress, portNumber);
-
-            DataOutputStream os = new DataOutputStream(socket.getOutputStream());
-            DataInputStream is = new DataInputStream(socket.getInputStream());
-            // Write query of status of the relay
-            byte bin[] = new byte[] { -81, 1, -1, (byte) address, 0, 0, 0, 1, 0, -1, -1, -1, -1, -1, -1, -81 };
-            byte bout[] = new byte[1024];
-            os.write(bin);
-            logger.debug("Dobiss relay query send {}", Hex.encodeHexString(bin));
-
-            is.read(bout);
-            logger.debug("Dobiss relay query answer {}", Hex.encodeHexString(bout));
-
-            updateStatus(ThingStatus.ONLINE);
-
-            id01 = bout[32];
-            id02 = bout[33];
-            id03 = bout[34];
-            id04 = bout[35];
-            id05 = bout[36];
-            id06 = bout[37];
-            id07 = bout[38];
-            id08 = bout[39];
-            id09 = bout[40];
-            id10 = bout[41];
-            id11 = bout[42];
-            id12 = bout[43];
-
-            os.close();
-            is.close();
-            socket.close();
-
-        } catch (UnknownHostException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-
-            logger.debug("Communication to Dobiss relay unit failed!");
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
-                    "Unable to communicate with Dobiss relay unit");
-
+            gatewayService.acquire(ipAddress);
         } catch (IOException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-
-            logger.debug("Communication to Dobiss relay unit failed!");
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
-                    "Unable to communicate with Dobiss relay unit");
-
-        } catch (InterruptedException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-
-            logger.debug("Communication to Dobiss relay unit failed!");
+            logger.debug("Unable to start Dobiss communication: {}", e.getMessage());
             updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
-                    "Unable to communicate with Dobiss relay unit");
-        } finally {
-            // mutex.unlock();
-            DobissMutex.unlock();
+                    "Unable to start Dobiss communication");
+            return;
         }
+        acquired = true;
+
+        // The module is queried in the background, the thing goes online with the answer
+        updateStatus(ThingStatus.UNKNOWN);
+        queryRelay();
 
         // Starting UI pushing
         startAutomaticRefresh();
 
     }
 
-    private void queryDobissRelay() {
+    /**
+     * Queries the outputs of the module through the gateway service without waiting for the answer. When it
+     * arrives the thing goes online and the linked channels are updated; when the module does not answer the
+     * thing goes offline.
+     */
+    private void queryRelay() {
+        String ipAddress = this.ipAddress;
+        if (ipAddress == null) {
+            return;
+        }
 
-        // Query dobiss relay module for status of the individual relays
-        Socket socket;
-        try {
-            // mutex.lock(mutex_timeout);
-            DobissMutex.lock();
-
-            socket = new Socket(ipAddress, portNumber);
-
-            DataOutputStream os = new DataOutputStream(socket.getOutputStream());
-            DataInputStream is = new DataInputStream(socket.getInputStream());
-            // Write query of status of the relay
-            byte bin[] = new byte[] { -81, 1, -1, (byte) address, 0, 0, 0, 1, 0, -1, -1, -1, -1, -1, -1, -81 };
-            byte bout[] = new byte[1024];
-            os.write(bin);
-            logger.debug("Dobiss relay query send {}", Hex.encodeHexString(bin));
-
-            is.read(bout, 0, 64);
-            logger.debug("Dobiss relay query answer {}", Hex.encodeHexString(bout));
-
-            id01 = bout[32];
-            logger.debug("Dobiss relay query answer for id01 {}", bout[32]);
-            id02 = bout[33];
-            logger.debug("Dobiss relay query answer for id02 {}", bout[33]);
-            id03 = bout[34];
-            logger.debug("Dobiss relay query answer for id03 {}", bout[34]);
-            id04 = bout[35];
-            logger.debug("Dobiss relay query answer for id04 {}", bout[35]);
-            id05 = bout[36];
-            logger.debug("Dobiss relay query answer for id05 {}", bout[36]);
-            id06 = bout[37];
-            logger.debug("Dobiss relay query answer for id06 {}", bout[37]);
-            id07 = bout[38];
-            logger.debug("Dobiss relay query answer for id07 {}", bout[38]);
-            id08 = bout[39];
-            logger.debug("Dobiss relay query answer for id08 {}", bout[39]);
-            id09 = bout[40];
-            logger.debug("Dobiss relay query answer for id09 {}", bout[40]);
-            id10 = bout[41];
-            logger.debug("Dobiss relay query answer for id10 {}", bout[41]);
-            id11 = bout[42];
-            logger.debug("Dobiss relay query answer for id11 {}", bout[42]);
-            id12 = bout[43];
-            logger.debug("Dobiss relay query answer for id12 {}", bout[43]);
-
-            os.close();
-            is.close();
-            socket.close();
-
-        } catch (UnknownHostException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-
-            logger.debug("Communication to Dobiss relay unit failed!");
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
-                    "Unable to communicate with Dobiss relay unit");
+        gatewayService.queryRelay(ipAddress, address).whenComplete((outputs, e) -> {
+            // Answers that arrive after the handler was disposed are ignored
+            if (!acquired) {
+                return;
+            }
+            if (e != null) {
+                logger.debug("Communication to Dobiss relay unit failed!");
+                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
+                        "Unable to communicate with Dobiss relay unit");
+                return;
+            }
 
-        } catch (IOException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
+            id01 = outputs[0];
+            logger.debug("Dobiss relay query answer for id01 {}", id01);
+            id02 = outputs[1];
+            logger.debug("Dobiss relay query answer for id02 {}", id02);
+            id03 = outputs[2];
+            logger.debug("Dobiss relay query answer for id03 {}", id03);
+            id04 = outputs[3];
+            logger.debug("Dobiss relay query answer for id04 {}", id04);
+            id05 = outputs[4];
+            logger.debug("Dobiss relay query answer for id05 {}", id05);
+            id06 = outputs[5];
+            logger.debug("Dobiss relay query answer for id06 {}", id06);
+            id07 = outputs[6];
+            logger.debug("Dobiss relay query answer for id07 {}", id07);
+            id08 = outputs[7];
+            logger.debug("Dobiss relay query answer for id08 {}", id08);
+            id09 = outputs[8];
+            logger.debug("Dobiss relay query answer for id09 {}", id09);
+            id10 = outputs[9];
+            logger.debug("Dobiss relay query answer for id10 {}", id10);
+            id11 = outputs[10];
+            logger.debug("Dobiss relay query answer for id11 {}", id11);
+            id12 = outputs[11];
+            logger.debug("Dobiss relay query answer for id12 {}", id12);
+
+            if (getThing().getStatus() != ThingStatus.ONLINE) {
+                updateStatus(ThingStatus.ONLINE);
+            }
+            publishValues();
+        });
+    }
 
-            logger.debug("Communication to Dobiss relay unit failed!");
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
-                    "Unable to communicate with Dobiss relay unit");
-        } catch (InterruptedException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
+    @Override
+    public void dispose() {
+        ScheduledFuture<?> pollingJob = this.pollingJob;
+        if (pollingJob != null) {
+            pollingJob.cancel(false);
+            this.pollingJob = null;
+        }
 
-            logger.debug("Communication to Dobiss relay unit failed!");
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.HANDLER_INITIALIZING_ERROR,
-                    "Unable to communicate with Dobiss relay unit");
-        } finally {
-            // mutex.unlock();
-            DobissMutex.unlock();
+        String ipAddress = this.ipAddress;
+        if (acquired && ipAddress != null) {
+            gatewayService.release(ipAddress);
+            acquired = false;
         }
+
+        super.dispose();
     }
 
     private void publishValue(ChannelUID channelUID) {
@@ -481,51 +373,51 @@ public class dobissRelayHandler extends BaseThingHandler {
         String channelID = channelUID.getId();
         switch (channelID) {
             case CHANNEL_DOBISS_RELAY_ID_1:
-                updateState(CHANNEL_DOBISS_RELAY_ID_1, DecimalType.valueOf(Integer.toString(id01)));
+                updateState(CHANNEL_DOBISS_RELAY_ID_1, DobissStates.relay(id01));
                 logger.debug("Update status for id01 {}", id01);
                 break;
             case CHANNEL_DOBISS_RELAY_ID_2:
-                updateState(CHANNEL_DOBISS_RELAY_ID_2, DecimalType.valueOf(Integer.toString(id02)));
+                updateState(CHANNEL_DOBISS_RELAY_ID_2, DobissStates.relay(id02));
                 logger.debug("Update status for id02 {}", id02);
                 break;
             case CHANNEL_DOBISS_RELAY_ID_3:
-                updateState(CHANNEL_DOBISS_RELAY_ID_3, DecimalType.valueOf(Integer.toString(id03)));
+                updateState(CHANNEL_DOBISS_RELAY_ID_3, DobissStates.relay(id03));
                 logger.debug("Update status for id03 {}", id03);
                 break;
             case CHANNEL_DOBISS_RELAY_ID_4:
-                updateState(CHANNEL_DOBISS_RELAY_ID_4, DecimalType.valueOf(Integer.toString(id04)));
+                updateState(CHANNEL_DOBISS_RELAY_ID_4, DobissStates.relay(id04));
                 logger.debug("Update status for id04 {}", id04);
                 break;
             case CHANNEL_DOBISS_RELAY_ID_5:
-                updateState(CHANNEL_DOBISS_RELAY_ID_5, DecimalType.valueOf(Integer.toString(id05)));
+                updateState(CHANNEL_DOBISS_RELAY_ID_5, DobissStates.relay(id05));
                 logger.debug("Update status for id05 {}", id05);
                 break;
             case CHANNEL_DOBISS_RELAY_ID_6:
-                updateState(CHANNEL_DOBISS_RELAY_ID_6, DecimalType.valueOf(Integer.toString(id06)));
+                updateState(CHANNEL_DOBISS_RELAY_ID_6, DobissStates.relay(id06));
                 logger.debug("Update status for id06 {}", id06);
                 break;
             case CHANNEL_DOBISS_RELAY_ID_7:
-                updateState(CHANNEL_DOBISS_RELAY_ID_7, DecimalType.valueOf(Integer.toString(id07)));
+                updateState(CHANNEL_DOBISS_RELAY_ID_7, DobissStates.relay(id07));
                 logger.debug("Update status for id07 {}", id07);
                 break;
             case CHANNEL_DOBISS_RELAY_ID_8:
-                updateState(CHANNEL_DOBISS_RELAY_ID_8, DecimalType.valueOf(Integer.toString(id08)));
+                updateState(CHANNEL_DOBISS_RELAY_ID_8, DobissStates.relay(id08));
                 logger.debug("Update status for id08 {}", id08);
                 break;
             case CHANNEL_DOBISS_RELAY_ID_9:
-                updateState(CHANNEL_DOBISS_RELAY_ID_9, DecimalType.valueOf(Integer.toString(id09)));
+                updateState(CHANNEL_DOBISS_RELAY_ID_9, DobissStates.relay(id09));
                 logger.debug("Update status for id09 {}", id09);
                 break;
             case CHANNEL_DOBISS_RELAY_ID_10:
-                updateState(CHANNEL_DOBISS_RELAY_ID_10, DecimalType.valueOf(Integer.toString(id10)));
+                updateState(CHANNEL_DOBISS_RELAY_ID_10, DobissStates.relay(id10));
                 logger.debug("Update status for id10 {}", id10);
                 break;
             case CHANNEL_DOBISS_RELAY_ID_11:
-                updateState(CHANNEL_DOBISS_RELAY_ID_11, DecimalType.valueOf(Integer.toString(id11)));
+                updateState(CHANNEL_DOBISS_RELAY_ID_11, DobissStates.relay(id11));
                 logger.debug("Update status for id11 {}", id11);
                 break;
             case CHANNEL_DOBISS_RELAY_ID_12:
-                updateState(CHANNEL_DOBISS_RELAY_ID_12, DecimalType.valueOf(Integer.toString(id12)));
+                updateState(CHANNEL_DOBISS_RELAY_ID_12, DobissStates.relay(id12));
                 logger.debug("Update status for id12 {}", id12);
                 break;
 
@@ -538,27 +430,29 @@ public class dobissRelayHandler extends BaseThingHandler {
     private void startAutomaticRefresh() {
         logger.debug("Starting automatic refresh");
 
-        timer = new Timer();
-        timer.scheduleAtFixedRate(new PeriodicTask(), pollingDelay, pollingInterval * 1000);
+        long interval = pollingInterval * 1000L;
+        long delay = pollingDelay + ThreadLocalRandom.current().nextLong(interval);
+        pollingJob = ThreadPoolManager.getScheduledPool(THREAD_POOL_NAME).scheduleAtFixedRate(this::poll, delay,
+                interval, TimeUnit.MILLISECONDS);
 
         logger.debug("Start automatic refresh every {} seconds", pollingInterval);
     }
 
-    class PeriodicTask extends TimerTask {
-
-        @Override
-        public void run() {
-
-            queryDobissRelay();
+    private void poll() {
+        try {
+            // Query dobiss relay module for status of the individual relay outputs
+            queryRelay();
+        } catch (RuntimeException e) {
+            logger.warn("Unexpected error while polling {}", thing.getUID(), e);
+        }
+    }
 
-            List<Channel> channels = getThing().getChannels();
-            for (Channel channel : channels) {
-                if (isLinked(channel.getUID().getId())) {
-                    publishValue(channel.getUID());
-                }
+    private void publishValues() {
+        List<Channel> channels = getThing().getChannels();
+        for (Channel channel : channels) {
+            if (isLinked(channel.getUID().getId())) {
+                publishValue(channel.getUID());
             }
-
         }
-
     }
 }
@@ -21,7 +21,9 @@ import org.eclipse.smarthome.core.thing.ThingTypeUID;
 import org.eclipse.smarthome.core.thing.binding.BaseThingHandlerFactory;
 import org.eclipse.smarthome.core.thing.binding.ThingHandler;
 import org.eclipse.smarthome.core.thing.binding.ThingHandlerFactory;
+import org.openhab.binding.dobiss.service.DobissGatewayService;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
 
 /**
  * The {@link dobissRelayHandlerFactory} is responsible for creating things and thing
@@ -33,6 +35,8 @@ import org.osgi.service.component.annotations.Component;
 @Component(configurationPid = "binding.dobiss_relay", service = ThingHandlerFactory.class)
 public class dobissRelayHandlerFactory extends BaseThingHandlerFactory {
 
+    private @NonNullByDefault({}) DobissGatewayService gatewayService;
+
     @Override
     public boolean supportsThingType(ThingTypeUID thingTypeUID) {
 
@@ -44,9 +48,18 @@ public class dobissRelayHandlerFactory extends BaseThingHandlerFactory {
         ThingTypeUID thingTypeUID = thing.getThingTypeUID();
 
         if (THING_TYPE_DOBISS_RELAY.equals(thingTypeUID)) {
-            return new dobissRelayHandler(thing);
+            return new dobissRelayHandler(thing, gatewayService);
         }
 
         return null;
     }
+
+    @Reference
+    protected void setDobissGatewayService(DobissGatewayService gatewayService) {
+        this.gatewayService = gatewayService;
+    }
+
+    protected void unsetDobissGatewayService(DobissGatewayService gatewayService) {
+        this.gatewayService = null;
+    }
 }